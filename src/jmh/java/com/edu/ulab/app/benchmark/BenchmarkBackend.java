@@ -0,0 +1,173 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.AppApplication;
+import com.edu.ulab.app.cache.ExistenceFilter;
+import com.edu.ulab.app.cache.ExpiringCache;
+import com.edu.ulab.app.cache.SingleFlight;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.logging.LogPolicy;
+import com.edu.ulab.app.logging.LoggingProperties;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.service.impl.BookServiceImplStorage;
+import com.edu.ulab.app.service.impl.UserServiceImplStorage;
+import com.edu.ulab.app.storage.Storage;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Собирает {@link UserDataFacade} поверх выбранной реализации сервисов.
+ * <p>
+ * memory не требует базы данных, jpa и jdbc поднимают контекст приложения
+ * с соответствующим app.storage.backend и работают с базой из application.yaml.
+ */
+final class BenchmarkBackend implements AutoCloseable {
+
+    static final String DEFAULT_PROFILE = "default";
+
+    private final ConfigurableApplicationContext context;
+    private final UserDataFacade facade;
+
+    private BenchmarkBackend(ConfigurableApplicationContext context, UserDataFacade facade) {
+        this.context = context;
+        this.facade = facade;
+    }
+
+    /**
+     * Кэш в фасаде отключён нулевым временем жизни, чтобы чтения доходили до сервисов.
+     */
+    static BenchmarkBackend start(String backend) {
+        return start(backend, DEFAULT_PROFILE, new LogPolicy(new LoggingProperties()));
+    }
+
+    static BenchmarkBackend start(String backend, String profile) {
+        return start(backend, profile, new LogPolicy(new LoggingProperties()));
+    }
+
+    static BenchmarkBackend start(String backend, LogPolicy logPolicy) {
+        return start(backend, DEFAULT_PROFILE, logPolicy);
+    }
+
+    /**
+     * profile - профиль Spring для jpa и jdbc; default означает запуск без профиля.
+     */
+    static BenchmarkBackend start(String backend, String profile, LogPolicy logPolicy) {
+        if ("memory".equals(backend)) {
+            Storage storage = new Storage();
+            UserMapper userMapper = new UserMapperImpl();
+            BookMapper bookMapper = new BookMapperImpl();
+            return new BenchmarkBackend(null, facade(
+                    new UserServiceImplStorage(storage, userMapper, bookMapper),
+                    new BookServiceImplStorage(storage, bookMapper),
+                    userMapper,
+                    bookMapper,
+                    logPolicy));
+        }
+
+        SpringApplicationBuilder applicationBuilder = application("app.storage.backend=" + backend);
+        if (!DEFAULT_PROFILE.equals(profile)) {
+            applicationBuilder.profiles(profile);
+        }
+        ConfigurableApplicationContext context = applicationBuilder.run();
+        return new BenchmarkBackend(context, facade(
+                context.getBean(UserService.class),
+                context.getBean(BookService.class),
+                context.getBean(UserMapper.class),
+                context.getBean(BookMapper.class),
+                logPolicy));
+    }
+
+    /**
+     * Приложение без веб-сервера. Тестовые классы лежат в classpath бенчмарков, поэтому
+     * {@link TestConfiguration} (контейнер PostgreSQL для тестов репозиториев) исключается из сканирования,
+     * как это делает контекст Spring Boot в тестах.
+     */
+    static SpringApplicationBuilder application(String... properties) {
+        return new SpringApplicationBuilder(AppApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(context -> context.getBeanFactory()
+                        .registerSingleton("benchmarkTypeExcludeFilter", new TestConfigurationExcludeFilter()))
+                .properties(properties);
+    }
+
+    private static UserDataFacade facade(UserService userService,
+                                         BookService bookService,
+                                         UserMapper userMapper,
+                                         BookMapper bookMapper,
+                                         LogPolicy logPolicy) {
+        return new UserDataFacade(userService, bookService, userMapper, bookMapper,
+                new ExpiringCache<Long, UserBookIdsDto>("benchmark", 1, Duration.ZERO),
+                new SingleFlight<>("benchmark", Duration.ofSeconds(5)),
+                new ExistenceFilter("benchmark", 1, 0.5, new ExpiringCache<>("benchmarkAbsent", 1, Duration.ZERO)),
+                logPolicy,
+                100, 1000, 500);
+    }
+
+    UserDataFacade facade() {
+        return facade;
+    }
+
+    static UserBookRequest userBookRequest(Long userId, int bookCount) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setUserId(userId);
+        userRequest.setFullName("Benchmark User");
+        userRequest.setTitle("reader");
+        userRequest.setAge(30);
+
+        List<BookRequest> bookRequests = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            BookRequest bookRequest = new BookRequest();
+            bookRequest.setTitle("Book #" + i);
+            bookRequest.setAuthor("Author #" + i);
+            bookRequest.setPageCount(100 + i);
+            bookRequests.add(bookRequest);
+        }
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(bookRequests);
+        return request;
+    }
+
+    @Override
+    public void close() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    private static final class TestConfigurationExcludeFilter extends TypeExcludeFilter {
+
+        @Override
+        public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+            return metadataReader.getAnnotationMetadata().hasAnnotation(TestConfiguration.class.getName());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other != null && other.getClass() == getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
+    }
+}
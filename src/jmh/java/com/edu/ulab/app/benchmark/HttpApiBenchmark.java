@@ -0,0 +1,134 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.web.constant.WebConstant;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST API уже запущенного приложения через HTTP: весь путь запроса, включая фильтры, кэш фасада и базу.
+ * <p>
+ * Приложение запускается отдельно с нужным профилем и backend, адрес задаётся параметром baseUrl.
+ * Каждый поток обновляет своего пользователя: одновременные изменения одного пользователя
+ * после исчерпания повторов заканчиваются 409, и замер был бы замером конфликтов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class HttpApiBenchmark {
+
+    private static final String USER_URL = WebConstant.VERSION_URL + "/user";
+
+    @Param({"http://localhost:8091/app"})
+    String baseUrl;
+
+    @Param({"50"})
+    int bookCount;
+
+    ObjectMapper objectMapper;
+    HttpClient httpClient;
+    String createBody;
+    URI createUri;
+    URI updateUri;
+    URI existingUserUri;
+    URI missingUserUri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        objectMapper = new ObjectMapper();
+        httpClient = HttpClient.newHttpClient();
+        createUri = URI.create(baseUrl + USER_URL + "/create");
+        updateUri = URI.create(baseUrl + USER_URL + "/update");
+        createBody = objectMapper.writeValueAsString(BenchmarkBackend.userBookRequest(null, bookCount));
+
+        long existingUserId = createUser();
+        existingUserUri = URI.create(baseUrl + USER_URL + "/get/" + existingUserId);
+        missingUserUri = URI.create(baseUrl + USER_URL + "/get/" + Long.MAX_VALUE);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadUser {
+
+        String updateBody;
+
+        @Setup(Level.Trial)
+        public void setUp(HttpApiBenchmark benchmark) throws IOException, InterruptedException {
+            updateBody = benchmark.objectMapper.writeValueAsString(
+                    BenchmarkBackend.userBookRequest(benchmark.createUser(), benchmark.bookCount));
+        }
+    }
+
+    @Benchmark
+    public String createUserWithBooks() throws IOException, InterruptedException {
+        return send(post(createUri, createBody), 200);
+    }
+
+    @Benchmark
+    public String getUserWithBooks() throws IOException, InterruptedException {
+        return send(get(existingUserUri), 200);
+    }
+
+    @Benchmark
+    public String getMissingUser() throws IOException, InterruptedException {
+        return send(get(missingUserUri), 404);
+    }
+
+    @Benchmark
+    public String updateUserWithBooks(ThreadUser user) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(updateUri)
+                .header(WebConstant.RQID, "benchmark")
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(user.updateBody))
+                .build(), 200);
+    }
+
+    long createUser() throws IOException, InterruptedException {
+        return objectMapper.readTree(send(post(createUri, createBody), 200)).get("userId").asLong();
+    }
+
+    private String send(HttpRequest request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned "
+                    + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static HttpRequest post(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header(WebConstant.RQID, "benchmark")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static HttpRequest get(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .header(WebConstant.RQID, "benchmark")
+                .GET()
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.edu.ulab.app.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.logging.LogPolicy;
+import com.edu.ulab.app.logging.LoggingProperties;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность {@link UserDataFacade} на memory с разным режимом логирования:
+ * off - логи приложения выключены, all - пишется каждое сообщение INFO, sampled - настройки профиля async-logging.
+ * <p>
+ * Сообщения форматируются шаблоном консоли Spring Boot и пишутся в пустой поток,
+ * поэтому замер включает построение строк и кодирование, но не скорость терминала.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final String APP_LOGGER = "com.edu.ulab.app";
+
+    @Param({"off", "all", "sampled"})
+    String logging;
+
+    @Param({"10", "100"})
+    int bookCount;
+
+    BenchmarkBackend benchmarkBackend;
+    UserDataFacade facade;
+    UserBookRequest createRequest;
+    Long existingUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LoggingProperties properties = new LoggingProperties();
+        if ("sampled".equals(logging)) {
+            properties.setSampleRates(Map.of(
+                    "http-request-id", 0.01,
+                    "facade-request", 0.1,
+                    "facade-result", 0.1));
+        }
+        redirectLogsToNullStream("off".equals(logging)
+                ? ch.qos.logback.classic.Level.OFF
+                : ch.qos.logback.classic.Level.INFO);
+
+        benchmarkBackend = BenchmarkBackend.start("memory", new LogPolicy(properties));
+        facade = benchmarkBackend.facade();
+        createRequest = BenchmarkBackend.userBookRequest(null, bookCount);
+        existingUserId = facade.createUserWithBooks(createRequest).getUserId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        benchmarkBackend.close();
+    }
+
+    @Benchmark
+    public UserBookResponse createUserWithBooks() {
+        return facade.createUserWithBooks(createRequest);
+    }
+
+    @Benchmark
+    public UserBookResponse getUserWithBooks() {
+        return facade.getUserWithBooks(existingUserId);
+    }
+
+    private static void redirectLogsToNullStream(ch.qos.logback.classic.Level appLevel) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.addAppender(appender);
+        root.setLevel(ch.qos.logback.classic.Level.INFO);
+        context.getLogger(APP_LOGGER).setLevel(appLevel);
+    }
+}
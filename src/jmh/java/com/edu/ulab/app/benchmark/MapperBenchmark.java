@@ -0,0 +1,98 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость преобразований MapStruct, которые выполняются на каждый запрос.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    BookMapper bookMapper = new BookMapperImpl();
+    UserMapper userMapper = new UserMapperImpl();
+
+    BookRequest bookRequest;
+    BookDto bookDto;
+    Book book;
+    UserRequest userRequest;
+    UserDto userDto;
+    Person person;
+
+    @Setup
+    public void setUp() {
+        bookRequest = new BookRequest();
+        bookRequest.setTitle("Title");
+        bookRequest.setAuthor("Author");
+        bookRequest.setPageCount(100);
+
+        bookDto = bookMapper.bookRequestToBookDto(bookRequest);
+        bookDto.setId(1L);
+        bookDto.setUserId(1L);
+        book = bookMapper.bookDtoToBook(bookDto);
+
+        userRequest = new UserRequest();
+        userRequest.setFullName("Full Name");
+        userRequest.setTitle("reader");
+        userRequest.setAge(30);
+
+        userDto = userMapper.userRequestToUserDto(userRequest);
+        userDto.setUserId(1L);
+        person = userMapper.userDtoToPerson(userDto);
+    }
+
+    @Benchmark
+    public BookDto bookRequestToBookDto() {
+        return bookMapper.bookRequestToBookDto(bookRequest);
+    }
+
+    @Benchmark
+    public Book bookDtoToBook() {
+        return bookMapper.bookDtoToBook(bookDto);
+    }
+
+    @Benchmark
+    public BookDto bookToBookDto() {
+        return bookMapper.bookToBookDto(book);
+    }
+
+    @Benchmark
+    public UserDto userRequestToUserDto() {
+        return userMapper.userRequestToUserDto(userRequest);
+    }
+
+    @Benchmark
+    public Person userDtoToPerson() {
+        return userMapper.userDtoToPerson(userDto);
+    }
+
+    @Benchmark
+    public UserDto personToUserDto() {
+        return userMapper.personToUserDto(person);
+    }
+}
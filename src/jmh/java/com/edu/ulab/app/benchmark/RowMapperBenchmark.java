@@ -0,0 +1,86 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.mapper.BookRowMapper;
+import com.edu.ulab.app.mapper.UserRowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость маппинга одной строки {@link BookRowMapper} и {@link UserRowMapper}.
+ * Строка лежит в {@link CachedRowSet}, поэтому чтение из сети не входит в замер.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    BookRowMapper bookRowMapper = new BookRowMapper();
+    UserRowMapper userRowMapper = new UserRowMapper();
+
+    CachedRowSet bookRow;
+    CachedRowSet personRow;
+
+    @Setup
+    public void setUp() throws SQLException {
+        bookRow = singleRow(
+                new String[]{"id", "user_id", "title", "author", "page_count", "version"},
+                new int[]{Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.BIGINT},
+                new Object[]{1L, 1L, "Title", "Author", 100L, 0L});
+        personRow = singleRow(
+                new String[]{"id", "full_name", "title", "age", "version"},
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.BIGINT},
+                new Object[]{1L, "Full Name", "reader", 30, 0L});
+    }
+
+    @Benchmark
+    public Book bookRowMapper() throws SQLException {
+        return bookRowMapper.mapRow(bookRow, 1);
+    }
+
+    @Benchmark
+    public Person userRowMapper() throws SQLException {
+        return userRowMapper.mapRow(personRow, 1);
+    }
+
+    private static CachedRowSet singleRow(String[] columns, int[] types, Object[] values) throws SQLException {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            metaData.setColumnName(i + 1, columns[i]);
+            metaData.setColumnLabel(i + 1, columns[i]);
+            metaData.setColumnType(i + 1, types[i]);
+        }
+
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(metaData);
+        rowSet.moveToInsertRow();
+        for (int i = 0; i < values.length; i++) {
+            rowSet.updateObject(i + 1, values[i]);
+        }
+        rowSet.insertRow();
+        rowSet.moveToCurrentRow();
+        rowSet.beforeFirst();
+        rowSet.next();
+        return rowSet;
+    }
+}
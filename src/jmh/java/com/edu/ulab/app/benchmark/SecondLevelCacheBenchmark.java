@@ -0,0 +1,82 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Повторное чтение одного пользователя и его книг через сервисы jpa с кэшем второго уровня Hibernate и без него.
+ * <p>
+ * appCache - чтение того же пользователя через {@link UserDataFacade} с кэшем приложения,
+ * для сравнения двух уровней кэширования.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecondLevelCacheBenchmark {
+
+    @Param({"true", "false"})
+    String secondLevelCache;
+
+    @Param({"10", "100"})
+    int bookCount;
+
+    ConfigurableApplicationContext context;
+    UserService userService;
+    BookService bookService;
+    UserDataFacade facade;
+    Long existingUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkBackend.application("app.storage.backend=jpa",
+                        "app.hibernate.second-level-cache.enabled=" + secondLevelCache)
+                .run();
+        userService = context.getBean(UserService.class);
+        bookService = context.getBean(BookService.class);
+        facade = context.getBean(UserDataFacade.class);
+        existingUserId = facade.createUserWithBooks(BenchmarkBackend.userBookRequest(null, bookCount)).getUserId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDto getUserById() {
+        return userService.getUserById(existingUserId);
+    }
+
+    @Benchmark
+    public List<BookDto> getAllBooksByUserId() {
+        return bookService.getAllBooksByUserId(existingUserId);
+    }
+
+    @Benchmark
+    public Object appCache() {
+        return facade.getUserWithBooks(existingUserId);
+    }
+}
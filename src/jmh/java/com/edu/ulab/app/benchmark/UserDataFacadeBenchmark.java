@@ -0,0 +1,80 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути {@link UserDataFacade} на каждой реализации сервисов и с разным количеством книг.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDataFacadeBenchmark {
+
+    @Param({"memory", "jpa", "jdbc"})
+    String backend;
+
+    @Param({"1", "50", "500"})
+    int bookCount;
+
+    /**
+     * Профиль Spring для jpa и jdbc; на memory не влияет.
+     */
+    @Param({BenchmarkBackend.DEFAULT_PROFILE})
+    String profile;
+
+    BenchmarkBackend benchmarkBackend;
+    UserDataFacade facade;
+    UserBookRequest createRequest;
+    UserBookRequest updateRequest;
+    Long existingUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        benchmarkBackend = BenchmarkBackend.start(backend, profile);
+        facade = benchmarkBackend.facade();
+        createRequest = BenchmarkBackend.userBookRequest(null, bookCount);
+
+        existingUserId = facade.createUserWithBooks(createRequest).getUserId();
+        updateRequest = BenchmarkBackend.userBookRequest(existingUserId, bookCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        benchmarkBackend.close();
+    }
+
+    @Benchmark
+    public UserBookResponse createUserWithBooks() {
+        return facade.createUserWithBooks(createRequest);
+    }
+
+    @Benchmark
+    public UserBookResponse getUserWithBooks() {
+        return facade.getUserWithBooks(existingUserId);
+    }
+
+    @Benchmark
+    public UserBookResponse updateUserWithBooks() {
+        return facade.updateUserWithBooks(updateRequest);
+    }
+}
@@ -0,0 +1,154 @@
+package com.edu.ulab.app.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Отвечает, что id точно не существует: по кэшу недавно не найденных или удалённых id
+ * и по фильтру Блума всех известных id.
+ * <p>
+ * Отрицательный ответ фильтра Блума окончательный и обходится без запроса: новые id добавляются
+ * через {@link #markPresent}, а id, сохранённые мимо этого экземпляра (другими экземплярами приложения,
+ * импортом в обход фасада), появляются в фильтре при следующем периодическом {@link #rebuild}.
+ * Удалять из фильтра Блума нельзя, поэтому удалённые id попадают только в кэш отсутствующих.
+ * До первого успешного перестроения ничего не отсекается; во время перестроения работает прежний фильтр.
+ */
+@Slf4j
+public class ExistenceFilter {
+
+    private final String name;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final ExpiringCache<Long, Boolean> absentIds;
+
+    /**
+     * Отметки и подмена фильтра при перестроении идут под этим замком: отметка попадает
+     * либо в строящийся фильтр до подмены, либо в новый текущий после неё.
+     */
+    private final Object filtersLock = new Object();
+    private volatile LongBloomFilter current;
+    private LongBloomFilter building;
+    private volatile boolean ready;
+
+    private final LongAdder bloomRejectCount = new LongAdder();
+    private final LongAdder absentCacheRejectCount = new LongAdder();
+
+    public ExistenceFilter(String name,
+                           long expectedInsertions,
+                           double falsePositiveProbability,
+                           ExpiringCache<Long, Boolean> absentIds) {
+        this.name = name;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.absentIds = absentIds;
+    }
+
+    /**
+     * true, только если id точно отсутствует; false - id может существовать и его нужно искать в базе.
+     */
+    public boolean isAbsent(long id) {
+        if (!ready) {
+            return false;
+        }
+        if (isKnownAbsent(id)) {
+            return true;
+        }
+        if (current.mightContain(id)) {
+            return false;
+        }
+        bloomRejectCount.increment();
+        return true;
+    }
+
+    /**
+     * true, если id недавно не нашёлся в базе или был удалён; фильтр Блума не проверяется.
+     * Для пакетного чтения, где отсутствие и так подтверждается одним общим запросом.
+     */
+    public boolean isKnownAbsent(long id) {
+        if (!ready || absentIds.getIfPresent(id).isEmpty()) {
+            return false;
+        }
+        absentCacheRejectCount.increment();
+        return true;
+    }
+
+    /**
+     * Вызывается после сохранения нового id, в том числе во время перестроения фильтра.
+     */
+    public void markPresent(long id) {
+        synchronized (filtersLock) {
+            if (current != null) {
+                current.put(id);
+            }
+            if (building != null) {
+                building.put(id);
+            }
+        }
+        absentIds.invalidate(id);
+    }
+
+    /**
+     * Вызывается для id, которого не оказалось в базе или который только что удалён.
+     */
+    public void markAbsent(long id) {
+        absentIds.put(id, Boolean.TRUE);
+    }
+
+    /**
+     * Строит новый фильтр по всем id из idSource и подменяет им текущий.
+     * Id, сохранённые во время обхода, попадают в новый фильтр через {@link #markPresent}.
+     * Если обход не удался, остаётся прежний фильтр, а если его ещё нет - обращения идут в базу.
+     */
+    public synchronized void rebuild(Consumer<LongConsumer> idSource) {
+        long startedAt = System.nanoTime();
+        LongBloomFilter filter = new LongBloomFilter(expectedInsertions, falsePositiveProbability);
+        synchronized (filtersLock) {
+            building = filter;
+        }
+        long[] idsCount = new long[1];
+        try {
+            idSource.accept(id -> {
+                filter.put(id);
+                idsCount[0]++;
+            });
+        } catch (RuntimeException e) {
+            synchronized (filtersLock) {
+                building = null;
+            }
+            log.error("Failed to build {} existence filter, {}", name,
+                    ready ? "keeping the previous one" : "lookups are not filtered", e);
+            return;
+        }
+        synchronized (filtersLock) {
+            current = filter;
+            building = null;
+        }
+        absentIds.invalidateAll();
+        ready = true;
+        log.info("Built {} existence filter over {} ids ({} bits, {} hashes) in {} ms",
+                name, idsCount[0], filter.bitCount(), filter.hashCount(), (System.nanoTime() - startedAt) / 1_000_000);
+        if (idsCount[0] > expectedInsertions) {
+            log.warn("{} existence filter holds {} ids, more than expected {}; false positive rate is higher",
+                    name, idsCount[0], expectedInsertions);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long bloomRejectCount() {
+        return bloomRejectCount.sum();
+    }
+
+    public long absentCacheRejectCount() {
+        return absentCacheRejectCount.sum();
+    }
+}
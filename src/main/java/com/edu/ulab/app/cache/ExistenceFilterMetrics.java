@@ -0,0 +1,30 @@
+package com.edu.ulab.app.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Публикует число обращений, отсечённых {@link ExistenceFilter} без запроса к базе,
+ * с разбивкой по источнику ответа.
+ */
+public class ExistenceFilterMetrics implements MeterBinder {
+
+    private final ExistenceFilter existenceFilter;
+
+    public ExistenceFilterMetrics(ExistenceFilter existenceFilter) {
+        this.existenceFilter = existenceFilter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("app.existence.filter.rejected", existenceFilter, ExistenceFilter::bloomRejectCount)
+                .tags("name", existenceFilter.getName(), "source", "bloom")
+                .description("Lookups of absent ids answered without reading the user")
+                .register(registry);
+        FunctionCounter.builder("app.existence.filter.rejected", existenceFilter, ExistenceFilter::absentCacheRejectCount)
+                .tags("name", existenceFilter.getName(), "source", "absent-cache")
+                .description("Lookups of absent ids answered without reading the user")
+                .register(registry);
+    }
+}
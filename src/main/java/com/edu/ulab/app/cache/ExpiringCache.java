@@ -0,0 +1,154 @@
+package com.edu.ulab.app.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Кэш с ограниченным размером и временем жизни записи поверх Caffeine: чтение без блокировок,
+ * вытеснение по частоте и давности обращений (W-TinyLFU).
+ * <p>
+ * Загрузка значения при промахе выполняется вне кэша, поэтому медленный loader
+ * не задерживает чтение других ключей.
+ * <p>
+ * Чтобы загрузка, начатая до {@link #invalidate}, не вернула в кэш устаревшее значение, у ключей есть поколения:
+ * invalidate увеличивает поколение, а загруженное значение сохраняется, только если поколение не изменилось.
+ * Поколения хранятся по {@value #GENERATION_STRIPES} полосам хэша ключа, поэтому память не растёт с числом ключей;
+ * совпадение полос у разных ключей лишь изредка отменяет сохранение.
+ */
+public class ExpiringCache<K, V> {
+
+    static final int GENERATION_STRIPES = 1024;
+
+    private final String name;
+    private final Cache<K, V> entries;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final LongAdder putCount = new LongAdder();
+
+    public ExpiringCache(String name, int maxSize, Duration ttl) {
+        this(name, maxSize, ttl, System::nanoTime, ForkJoinPool.commonPool());
+    }
+
+    ExpiringCache(String name, int maxSize, Duration ttl, LongSupplier nanoTicker, Executor maintenanceExecutor) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache max size should be positive: " + maxSize);
+        }
+        this.name = name;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .ticker(nanoTicker::getAsLong)
+                .executor(maintenanceExecutor)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<V> getIfPresent(K key) {
+        return Optional.ofNullable(entries.getIfPresent(key));
+    }
+
+    /**
+     * Значение из кэша, а при его отсутствии - загруженное через loader и сохранённое в кэш,
+     * если ключ не был инвалидирован во время загрузки.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long generation = generation(key);
+        Optional<V> cached = getIfPresent(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            putIfCurrent(key, loaded, generation);
+        }
+        return loaded;
+    }
+
+    /**
+     * Поколение ключа, которое нужно прочитать до начала загрузки и передать в {@link #putIfCurrent}.
+     */
+    public long generation(K key) {
+        return generations.get(stripe(key));
+    }
+
+    /**
+     * Сохраняет значение, только если после чтения generation ключ не инвалидировали.
+     * Поколение проверяется до и после записи: invalidate сначала меняет поколение, затем удаляет запись,
+     * поэтому одновременная с записью инвалидация либо удалит её сама, либо будет замечена здесь.
+     */
+    public boolean putIfCurrent(K key, V value, long generation) {
+        int stripe = stripe(key);
+        if (generations.get(stripe) != generation) {
+            return false;
+        }
+        entries.put(key, value);
+        putCount.increment();
+        if (generations.get(stripe) != generation) {
+            entries.asMap().remove(key, value);
+            return false;
+        }
+        return true;
+    }
+
+    public void put(K key, V value) {
+        entries.put(key, value);
+        putCount.increment();
+    }
+
+    public void invalidate(K key) {
+        generations.incrementAndGet(stripe(key));
+        entries.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        entries.invalidateAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    public long hitCount() {
+        return entries.stats().hitCount();
+    }
+
+    public long missCount() {
+        return entries.stats().missCount();
+    }
+
+    public long putCount() {
+        return putCount.sum();
+    }
+
+    public long evictionCount() {
+        return entries.stats().evictionCount();
+    }
+
+    /**
+     * Выполняет отложенное вытеснение и удаление истёкших записей сразу, а не при следующих обращениях.
+     */
+    void cleanUp() {
+        entries.cleanUp();
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+}
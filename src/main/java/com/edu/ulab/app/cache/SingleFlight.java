@@ -0,0 +1,108 @@
+package com.edu.ulab.app.cache;
+
+import com.edu.ulab.app.exception.LoadTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Объединяет одновременные загрузки одного ключа: первый вызов выполняет loader,
+ * остальные ждут его {@link CompletableFuture} и получают тот же результат или то же исключение.
+ * Ожидание ограничено joinTimeout: зависшая загрузка не держит потоки всех ожидающих,
+ * они получают {@link LoadTimeoutException}. Результат один на всех, поэтому значения должны быть неизменяемыми.
+ * <p>
+ * Результат не запоминается - после завершения загрузки следующий вызов снова идёт в loader,
+ * хранение остаётся за кэшем.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final long joinTimeoutMillis;
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    public SingleFlight(String name, Duration joinTimeout) {
+        this.name = name;
+        this.joinTimeoutMillis = joinTimeout.toMillis();
+    }
+
+    public V load(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> ownLoad = new CompletableFuture<>();
+        CompletableFuture<V> sharedLoad = inFlight.putIfAbsent(key, ownLoad);
+        if (sharedLoad != null) {
+            coalescedCount.increment();
+            return join(key, sharedLoad);
+        }
+
+        loadCount.increment();
+        try {
+            V loaded = loader.apply(key);
+            ownLoad.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) {
+            ownLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ownLoad);
+        }
+    }
+
+    /**
+     * Следующие вызовы не присоединяются к уже идущей загрузке ключа, а начинают новую;
+     * те, кто уже ждёт, получат её результат.
+     * Нужен, когда данные изменились и начатая раньше загрузка могла прочитать старые.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public long loadCount() {
+        return loadCount.sum();
+    }
+
+    public long coalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    public long timeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    private V join(K key, CompletableFuture<V> load) {
+        try {
+            return load.get(joinTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeoutCount.increment();
+            throw new LoadTimeoutException("Load of " + name + " #" + key + " took more than " + joinTimeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoadTimeoutException("Interrupted waiting for load of " + name + " #" + key);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
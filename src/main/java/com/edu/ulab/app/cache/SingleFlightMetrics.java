@@ -0,0 +1,39 @@
+package com.edu.ulab.app.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Публикует статистику {@link SingleFlight}: выполненные загрузки, объединённые вызовы,
+ * не дождавшиеся загрузки вызовы и число загрузок в процессе.
+ */
+public class SingleFlightMetrics implements MeterBinder {
+
+    private final SingleFlight<?, ?> singleFlight;
+
+    public SingleFlightMetrics(SingleFlight<?, ?> singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("app.single.flight.loads", singleFlight, SingleFlight::loadCount)
+                .tag("name", singleFlight.getName())
+                .description("Loads actually executed")
+                .register(registry);
+        FunctionCounter.builder("app.single.flight.coalesced", singleFlight, SingleFlight::coalescedCount)
+                .tag("name", singleFlight.getName())
+                .description("Calls that waited for a load already in flight instead of running their own")
+                .register(registry);
+        FunctionCounter.builder("app.single.flight.timeouts", singleFlight, SingleFlight::timeoutCount)
+                .tag("name", singleFlight.getName())
+                .description("Calls that gave up waiting for a load in flight")
+                .register(registry);
+        Gauge.builder("app.single.flight.in.flight", singleFlight, SingleFlight::inFlightCount)
+                .tag("name", singleFlight.getName())
+                .description("Loads currently in flight")
+                .register(registry);
+    }
+}
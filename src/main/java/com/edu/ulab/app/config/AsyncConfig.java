@@ -0,0 +1,84 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.logging.MdcTaskDecorator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+@Configuration
+public class AsyncConfig {
+
+    public static final String USER_FACADE_EXECUTOR = "userFacadeExecutor";
+
+    private final LongAdder userFacadeRejected = new LongAdder();
+
+    /**
+     * Пул Spring Boot по умолчанию (spring.task.execution.*) для StreamingResponseBody и @Async.
+     * Автоконфигурация не создаёт его, если в контексте уже есть другой Executor, поэтому он объявлен явно.
+     */
+    @Lazy
+    @Primary
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder taskExecutorBuilder) {
+        return taskExecutorBuilder.build();
+    }
+
+    /**
+     * Пул для работы фасада из асинхронных методов UserController. Очередь ограничена:
+     * при её переполнении задача отклоняется сразу, счётчик app.async.rejected растёт, клиент получает 503,
+     * а поток Tomcat освобождается, не дожидаясь базы.
+     */
+    @Bean(USER_FACADE_EXECUTOR)
+    public ThreadPoolTaskExecutor userFacadeExecutor(
+            @Value("${app.async.user-facade.core-pool-size}") int corePoolSize,
+            @Value("${app.async.user-facade.max-pool-size}") int maxPoolSize,
+            @Value("${app.async.user-facade.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("user-facade-");
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            userFacadeRejected.increment();
+            throw new RejectedExecutionException("User facade executor is saturated");
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Размер пула, очередь, выполненные задачи и время их ожидания под именем executor.* с тегом name
+     * и число отклонённых задач app.async.rejected.
+     * <p>
+     * Пул не зависит от MeterRegistry: реестр сам создаёт пул при привязке метрик.
+     */
+    @Bean
+    public MeterBinder userFacadeExecutorMetrics(
+            @Qualifier(USER_FACADE_EXECUTOR) ThreadPoolTaskExecutor userFacadeExecutor) {
+        return registry -> {
+            new ExecutorServiceMetrics(userFacadeExecutor.getThreadPoolExecutor(), USER_FACADE_EXECUTOR,
+                    Tags.empty()).bindTo(registry);
+            FunctionCounter.builder("app.async.rejected", userFacadeRejected, LongAdder::sum)
+                    .tag("name", USER_FACADE_EXECUTOR)
+                    .description("Tasks rejected because the pool and its queue are full")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.cache.ExistenceFilter;
+import com.edu.ulab.app.cache.ExistenceFilterMetrics;
+import com.edu.ulab.app.cache.ExpiringCache;
+import com.edu.ulab.app.cache.ExpiringCacheMetrics;
+import com.edu.ulab.app.cache.SingleFlight;
+import com.edu.ulab.app.cache.SingleFlightMetrics;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.task.TaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public ExpiringCache<Long, UserBookIdsDto> userBooksCache(
+            @Value("${app.cache.user-books.max-size}") int maxSize,
+            @Value("${app.cache.user-books.ttl}") Duration ttl) {
+        return new ExpiringCache<>("userBooks", maxSize, ttl);
+    }
+
+    @Bean
+    public ExpiringCacheMetrics userBooksCacheMetrics(ExpiringCache<Long, UserBookIdsDto> userBooksCache) {
+        return new ExpiringCacheMetrics(userBooksCache);
+    }
+
+    @Bean
+    public SingleFlight<Long, UserBookIdsDto> userBooksSingleFlight(
+            @Value("${app.cache.user-books.load-timeout}") Duration loadTimeout) {
+        return new SingleFlight<>("userBooks", loadTimeout);
+    }
+
+    @Bean
+    public SingleFlightMetrics userBooksSingleFlightMetrics(SingleFlight<Long, UserBookIdsDto> userBooksSingleFlight) {
+        return new SingleFlightMetrics(userBooksSingleFlight);
+    }
+
+    @Bean
+    public ExpiringCache<Long, Boolean> absentUserIdsCache(
+            @Value("${app.cache.absent-users.max-size}") int maxSize,
+            @Value("${app.cache.absent-users.ttl}") Duration ttl) {
+        return new ExpiringCache<>("absentUserIds", maxSize, ttl);
+    }
+
+    @Bean
+    public ExpiringCacheMetrics absentUserIdsCacheMetrics(ExpiringCache<Long, Boolean> absentUserIdsCache) {
+        return new ExpiringCacheMetrics(absentUserIdsCache);
+    }
+
+    @Bean
+    public ExistenceFilter userIdFilter(
+            @Value("${app.users.id-filter.expected-insertions}") long expectedInsertions,
+            @Value("${app.users.id-filter.false-positive-probability}") double falsePositiveProbability,
+            ExpiringCache<Long, Boolean> absentUserIdsCache) {
+        return new ExistenceFilter("userIds", expectedInsertions, falsePositiveProbability, absentUserIdsCache);
+    }
+
+    @Bean
+    public ExistenceFilterMetrics userIdFilterMetrics(ExistenceFilter userIdFilter) {
+        return new ExistenceFilterMetrics(userIdFilter);
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler userIdFilterScheduler(TaskSchedulerBuilder taskSchedulerBuilder) {
+        return taskSchedulerBuilder
+                .poolSize(1)
+                .threadNamePrefix("user-id-filter-")
+                .build();
+    }
+
+    /**
+     * Фильтр id пользователей строится после старта; до этого поиск пользователей идёт в базу как раньше.
+     * Затем он перестраивается с периодом rebuild-interval, чтобы увидеть пользователей,
+     * созданных другими экземплярами приложения.
+     */
+    @Bean
+    public ApplicationRunner userIdFilterBuilder(ExistenceFilter userIdFilter,
+                                                 UserService userService,
+                                                 ThreadPoolTaskScheduler userIdFilterScheduler,
+                                                 @Value("${app.users.id-filter.rebuild-interval}") Duration interval) {
+        return args -> {
+            userIdFilter.rebuild(userService::forEachUserId);
+            userIdFilterScheduler.scheduleWithFixedDelay(() -> userIdFilter.rebuild(userService::forEachUserId),
+                    Instant.now().plus(interval), interval);
+        };
+    }
+}
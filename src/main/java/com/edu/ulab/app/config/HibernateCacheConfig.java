@@ -0,0 +1,34 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@Configuration
+public class HibernateCacheConfig {
+
+    private static final String JCACHE_URI_SETTING = "hibernate.javax.cache.uri";
+
+    /**
+     * Hibernate открывает hibernate.javax.cache.uri как URL, а протокол classpath: понимает только
+     * обработчик встроенного Tomcat. Без веб-сервера (бенчмарки, консольный запуск) путь из classpath
+     * заменяется на настоящий адрес ресурса.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jcacheUriCustomizer(ResourceLoader resourceLoader) {
+        return properties -> {
+            if (properties.get(JCACHE_URI_SETTING) instanceof String location
+                    && location.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX)) {
+                try {
+                    properties.put(JCACHE_URI_SETTING, resourceLoader.getResource(location).getURI().toString());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Hibernate cache configuration not found: " + location, e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.id.PooledIdAllocator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "jdbc")
+public class IdAllocatorConfig {
+
+    public static final String PERSON_ID_SEQUENCE = "person_id_seq";
+    public static final String BOOK_ID_SEQUENCE = "book_id_seq";
+
+    @Bean
+    public PooledIdAllocator personIdAllocator(JdbcTemplate jdbcTemplate,
+                                               @Value("${app.id.allocation-size}") int allocationSize) {
+        return new PooledIdAllocator(jdbcTemplate, PERSON_ID_SEQUENCE, allocationSize);
+    }
+
+    @Bean
+    public PooledIdAllocator bookIdAllocator(JdbcTemplate jdbcTemplate,
+                                             @Value("${app.id.allocation-size}") int allocationSize) {
+        return new PooledIdAllocator(jdbcTemplate, BOOK_ID_SEQUENCE, allocationSize);
+    }
+}
@@ -0,0 +1,19 @@
+package com.edu.ulab.app.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Включает {@link io.micrometer.core.annotation.Timed} на бинах: фасад и сервисы
+     * пишут таймеры app.facade и app.service с тегами class и method.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,23 @@
+package com.edu.ulab.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResultDto {
+
+    private long usersCount;
+
+    private long booksCount;
+
+    /**
+     * Id загруженных пользователей, чтобы отметить их в фильтре существующих id.
+     */
+    private List<Long> userIds = new ArrayList<>();
+}
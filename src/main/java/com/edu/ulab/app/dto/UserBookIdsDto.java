@@ -0,0 +1,59 @@
+package com.edu.ulab.app.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Пользователь с id книг. Неизменяемый: один экземпляр лежит в кэше и отдаётся всем, кто ждал его загрузки,
+ * поэтому пользователь копируется на входе и выходе, а список id не меняется.
+ */
+@ToString
+@EqualsAndHashCode
+public final class UserBookIdsDto {
+
+    private final UserDto user;
+
+    private final List<Long> bookIds;
+
+    /**
+     * ETag содержимого; заполняется фасадом перед сохранением в кэш, чтобы жить и сбрасываться вместе с данными.
+     */
+    private final String eTag;
+
+    public UserBookIdsDto(UserDto user, List<Long> bookIds) {
+        this(user, bookIds, null);
+    }
+
+    private UserBookIdsDto(UserDto user, List<Long> bookIds, String eTag) {
+        this.user = copyOf(user);
+        this.bookIds = List.copyOf(bookIds);
+        this.eTag = eTag;
+    }
+
+    public UserDto getUser() {
+        return copyOf(user);
+    }
+
+    public List<Long> getBookIds() {
+        return bookIds;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public UserBookIdsDto withETag(String eTag) {
+        return new UserBookIdsDto(user, bookIds, eTag);
+    }
+
+    private static UserDto copyOf(UserDto user) {
+        UserDto copy = new UserDto();
+        copy.setUserId(user.getUserId());
+        copy.setFullName(user.getFullName());
+        copy.setTitle(user.getTitle());
+        copy.setAge(user.getAge());
+        return copy;
+    }
+}
@@ -2,6 +2,11 @@ package com.edu.ulab.app.entity;
 
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.Min;
@@ -11,9 +16,13 @@ import javax.validation.constraints.NotNull;
 @Entity
 @Table(name = "book")
 @Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_id_generator")
+    @GenericGenerator(name = "book_id_generator", strategy = "com.edu.ulab.app.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "book_id_seq"))
     @Column(name = "id")
     private Long id;
 
@@ -33,5 +42,7 @@ public class Book {
     @Min(value = 1, message = "Page count should be 1 or more")
     private long pageCount;
 
-
+    @Version
+    @Column(name = "version")
+    private Long version;
 }
@@ -3,6 +3,11 @@ package com.edu.ulab.app.entity;
 
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.Min;
@@ -13,9 +18,13 @@ import javax.validation.constraints.NotNull;
 @Entity
 @Table(name = "person")
 @Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person")
 public class Person {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_id_generator")
+    @GenericGenerator(name = "person_id_generator", strategy = "com.edu.ulab.app.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "person_id_seq"))
     @Column(name = "id")
     private Long userId;
 
@@ -31,4 +40,8 @@ public class Person {
     @NotNull(message = "Age should be")
     @Min(value = 0, message = "Age should be 0 or more")
     private int age;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
 }
@@ -0,0 +1,8 @@
+package com.edu.ulab.app.exception;
+
+public class LoadTimeoutException extends RuntimeException {
+
+    public LoadTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -1,59 +1,109 @@
 package com.edu.ulab.app.facade;
 
+import com.edu.ulab.app.cache.ExistenceFilter;
+import com.edu.ulab.app.cache.ExpiringCache;
+import com.edu.ulab.app.cache.SingleFlight;
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.exception.BadRequestException;
+import com.edu.ulab.app.exception.UserServiceException;
+import com.edu.ulab.app.logging.LogPolicy;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.mapper.UserMapper;
-
-import com.edu.ulab.app.service.impl.BookServiceImpl;
-import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
-import com.edu.ulab.app.service.impl.UserServiceImpl;
-import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.BookRequest;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.ETaggedResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserDeleteResponse;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
+@Timed("app.facade")
 public class UserDataFacade {
-    private final UserServiceImpl userService;
-    private final BookServiceImpl bookService;
+    private static final String REQUEST_LOG = "facade-request";
+    private static final String RESULT_LOG = "facade-result";
+
+    private final UserService userService;
+    private final BookService bookService;
     private final UserMapper userMapper;
     private final BookMapper bookMapper;
+    private final ExpiringCache<Long, UserBookIdsDto> userBooksCache;
+    private final SingleFlight<Long, UserBookIdsDto> userBooksSingleFlight;
+    private final ExistenceFilter userIdFilter;
+    private final LogPolicy logPolicy;
+    private final int defaultBooksPageSize;
+    private final int maxBooksPageSize;
+    private final int maxUsersPerRequest;
 
-    public UserDataFacade(UserServiceImpl userService,
-                          BookServiceImpl bookService,
+    public UserDataFacade(UserService userService,
+                          BookService bookService,
                           UserMapper userMapper,
-                          BookMapper bookMapper) {
+                          BookMapper bookMapper,
+                          ExpiringCache<Long, UserBookIdsDto> userBooksCache,
+                          SingleFlight<Long, UserBookIdsDto> userBooksSingleFlight,
+                          ExistenceFilter userIdFilter,
+                          LogPolicy logPolicy,
+                          @Value("${app.books.page-size}") int defaultBooksPageSize,
+                          @Value("${app.books.max-page-size}") int maxBooksPageSize,
+                          @Value("${app.users.max-per-request}") int maxUsersPerRequest) {
         this.userService = userService;
         this.bookService = bookService;
         this.userMapper = userMapper;
         this.bookMapper = bookMapper;
+        this.userBooksCache = userBooksCache;
+        this.userBooksSingleFlight = userBooksSingleFlight;
+        this.userIdFilter = userIdFilter;
+        this.logPolicy = logPolicy;
+        this.defaultBooksPageSize = defaultBooksPageSize;
+        this.maxBooksPageSize = maxBooksPageSize;
+        this.maxUsersPerRequest = maxUsersPerRequest;
     }
 
+    /**
+     * Пользователь и его книги создаются в одной транзакции; одинаковые книги в запросе сохраняются один раз.
+     */
+    @Transactional
     public UserBookResponse createUserWithBooks(UserBookRequest userBookRequest) {
-        log.info("Got user book create request: {}", userBookRequest);
+        if (logPolicy.sampled(REQUEST_LOG)) {
+            log.info("Got user book create request: {} with books {}",
+                    userBookRequest.getUserRequest(), logPolicy.capped(userBookRequest.getBookRequests()));
+        }
         UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
-        log.info("Mapped user request: {}", userDto);
+        log.debug("Mapped user request: {}", userDto);
 
         UserDto createdUser = userService.createUser(userDto);
-        log.info("Created user: {}", createdUser);
+        log.debug("Created user: {}", createdUser);
+        markPresentAfterCommit(List.of(createdUser.getUserId()));
 
-        List<Long> bookIdList = userBookRequest.getBookRequests()
+        List<BookDto> mappedBooks = mapDistinctBooks(userBookRequest.getBookRequests(), createdUser.getUserId());
+
+        List<Long> bookIdList = bookService.createBooks(mappedBooks)
                 .stream()
-                .filter(Objects::nonNull)
-                .map(bookMapper::bookRequestToBookDto)
-                .peek(bookDto -> bookDto.setUserId(createdUser.getUserId()))
-                .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                .map(bookService::createBook)
-                .peek(createdBook -> log.info("Created book: {}", createdBook))
                 .map(BookDto::getId)
                 .toList();
-        log.info("Collected book ids: {}", bookIdList);
+        if (logPolicy.sampled(RESULT_LOG)) {
+            log.info("Created user #{} with book ids: {}", createdUser.getUserId(), logPolicy.capped(bookIdList));
+        }
+        UserBookIdsDto createdUserWithBookIds = new UserBookIdsDto(createdUser, bookIdList);
+        afterCommit(() -> cacheUserWithBooks(createdUserWithBookIds));
 
         return UserBookResponse.builder()
                 .userId(createdUser.getUserId())
@@ -61,25 +111,81 @@ public class UserDataFacade {
                 .build();
     }
 
+    /**
+     * Создаёт пачку пользователей с книгами двумя пакетными вставками, одинаковые книги пользователя - один раз.
+     * Ответы возвращаются в порядке запросов; в кэш пачка не кладётся, чтобы не вытеснять читаемых пользователей.
+     */
+    @Transactional
+    public List<UserBookResponse> createUsersWithBooks(List<UserBookRequest> userBookRequests) {
+        log.info("Got bulk create request for {} users", userBookRequests.size());
+        List<UserDto> userDtos = userBookRequests.stream()
+                .map(UserBookRequest::getUserRequest)
+                .map(userMapper::userRequestToUserDto)
+                .toList();
+        List<UserDto> createdUsers = userService.createUsers(userDtos);
+        List<Long> createdUserIds = createdUsers.stream().map(UserDto::getUserId).toList();
+        markPresentAfterCommit(createdUserIds);
+
+        List<BookDto> mappedBooks = new ArrayList<>();
+        int[] bookCounts = new int[userBookRequests.size()];
+        for (int i = 0; i < userBookRequests.size(); i++) {
+            List<BookRequest> bookRequests = userBookRequests.get(i).getBookRequests();
+            if (bookRequests == null) {
+                continue;
+            }
+            List<BookDto> userBooks = mapDistinctBooks(bookRequests, createdUsers.get(i).getUserId());
+            mappedBooks.addAll(userBooks);
+            bookCounts[i] = userBooks.size();
+        }
+        List<BookDto> createdBooks = bookService.createBooks(mappedBooks);
+        log.info("Created {} users with {} books", createdUsers.size(), createdBooks.size());
+
+        List<UserBookResponse> responses = new ArrayList<>(createdUsers.size());
+        int bookOffset = 0;
+        for (int i = 0; i < createdUsers.size(); i++) {
+            List<Long> bookIdList = createdBooks.subList(bookOffset, bookOffset + bookCounts[i])
+                    .stream()
+                    .map(BookDto::getId)
+                    .toList();
+            bookOffset += bookCounts[i];
+            responses.add(UserBookResponse.builder()
+                    .userId(createdUsers.get(i).getUserId())
+                    .booksIdList(bookIdList)
+                    .build());
+        }
+        return responses;
+    }
+
     public UserBookResponse updateUserWithBooks(UserBookRequest userBookRequest) {
-        log.info("Got user & book update request: {}", userBookRequest);
+        if (logPolicy.sampled(REQUEST_LOG)) {
+            log.info("Got user & book update request: {} with books {}",
+                    userBookRequest.getUserRequest(), logPolicy.capped(userBookRequest.getBookRequests()));
+        }
         UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
-        log.info("Mapped user request: {}", userDto);
+        log.debug("Mapped user request: {}", userDto);
 
-        UserDto updatedUser = userService.updateUser(userDto);
-        log.info("Updated user: {}", updatedUser);
+        UserDto updatedUser;
+        List<Long> bookIdList;
+        try {
+            updatedUser = userService.updateUser(userDto);
+            log.debug("Updated user: {}", updatedUser);
 
-        List<Long> bookIdList = userBookRequest.getBookRequests()
-                .stream()
-                .filter(Objects::nonNull)
-                .map(bookMapper::bookRequestToBookDto)
-                .peek(bookDto -> bookDto.setUserId(updatedUser.getUserId()))
-                .peek(mappedBookDto -> log.info("Mapped book: {}", mappedBookDto))
-                .map(bookService::updateBook)
-                .peek(updatedBook -> log.info("Updated book: {}", updatedBook))
-                .map(BookDto::getId)
-                .toList();
-        log.info("Collected book ids: {}", bookIdList);
+            bookIdList = userBookRequest.getBookRequests()
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .map(bookMapper::bookRequestToBookDto)
+                    .peek(bookDto -> bookDto.setUserId(updatedUser.getUserId()))
+                    .peek(mappedBookDto -> log.debug("Mapped book: {}", mappedBookDto))
+                    .map(bookService::updateBook)
+                    .peek(updatedBook -> log.debug("Updated book: {}", updatedBook))
+                    .map(BookDto::getId)
+                    .toList();
+            if (logPolicy.sampled(RESULT_LOG)) {
+                log.info("Updated user #{} with book ids: {}", updatedUser.getUserId(), logPolicy.capped(bookIdList));
+            }
+        } finally {
+            invalidate(userDto.getUserId());
+        }
 
         return UserBookResponse.builder()
                 .userId(updatedUser.getUserId())
@@ -88,31 +194,234 @@ public class UserDataFacade {
     }
 
     public UserBookResponse getUserWithBooks(Long userId) {
-        log.info("Got request to get user & it's books by id: {}", userId);
-        UserDto foundUserById = userService.getUserById(userId);
-        log.info("Found user: {}", foundUserById);
+        return getETaggedUserWithBooks(userId).getBody();
+    }
+
+    /**
+     * Пользователь с id книг и его ETag из одной записи кэша, поэтому ETag всегда соответствует телу ответа.
+     */
+    public ETaggedResponse<UserBookResponse> getETaggedUserWithBooks(Long userId) {
+        if (logPolicy.sampled(REQUEST_LOG)) {
+            log.info("Got request to get user & it's books by id: {}", userId);
+        }
+        UserBookIdsDto foundUserWithBookIds = userBooksCache.get(userId, this::loadUserWithBooksOnce);
+        if (logPolicy.sampled(RESULT_LOG)) {
+            log.info("Found user: {} with book ids: {}",
+                    foundUserWithBookIds.getUser(), logPolicy.capped(foundUserWithBookIds.getBookIds()));
+        }
 
-        List<Long> bookIdList = bookService.getAllBooksByUserId(userId).stream()
+        return ETaggedResponse.<UserBookResponse>builder()
+                .eTag(foundUserWithBookIds.getETag())
+                .body(UserBookResponse.builder()
+                        .userId(foundUserWithBookIds.getUser().getUserId())
+                        .booksIdList(foundUserWithBookIds.getBookIds())
+                        .build())
+                .build();
+    }
+
+    /**
+     * Пользователи с id книг в порядке запроса, без повторов; ненайденные пропускаются.
+     * Всё, чего нет в кэше, читается двумя запросами на все id сразу.
+     */
+    public List<UserBookResponse> getUsersWithBooks(List<Long> userIds) {
+        List<Long> distinctUserIds = userIds.stream()
                 .filter(Objects::nonNull)
-                .map(BookDto::getId)
+                .distinct()
                 .toList();
-        log.info("Collected book by user's id: {}", bookIdList);
+        if (distinctUserIds.size() > maxUsersPerRequest) {
+            throw new BadRequestException("Too many user ids: " + distinctUserIds.size()
+                    + ", max is " + maxUsersPerRequest);
+        }
+        log.info("Got request to get {} users & their books", distinctUserIds.size());
 
-        return UserBookResponse.builder()
-                .userId(foundUserById.getUserId())
-                .booksIdList(bookIdList)
-                .build();
+        Map<Long, UserBookIdsDto> foundUsersWithBookIds = new HashMap<>();
+        Map<Long, Long> cacheGenerations = new HashMap<>();
+        List<Long> notCachedUserIds = new ArrayList<>();
+        for (Long userId : distinctUserIds) {
+            if (userIdFilter.isKnownAbsent(userId)) {
+                continue;
+            }
+            long generation = userBooksCache.generation(userId);
+            userBooksCache.getIfPresent(userId).ifPresentOrElse(
+                    userWithBookIds -> foundUsersWithBookIds.put(userId, userWithBookIds),
+                    () -> {
+                        notCachedUserIds.add(userId);
+                        cacheGenerations.put(userId, generation);
+                    });
+        }
+
+        if (!notCachedUserIds.isEmpty()) {
+            List<UserDto> foundUsers = userService.getUsersByIds(notCachedUserIds);
+            Map<Long, List<Long>> bookIdsByUserId = foundUsers.isEmpty()
+                    ? Map.of()
+                    : bookService.getAllBookIdsByUserIds(foundUsers.stream().map(UserDto::getUserId).toList());
+            for (UserDto foundUser : foundUsers) {
+                UserBookIdsDto userWithBookIds = new UserBookIdsDto(foundUser,
+                        bookIdsByUserId.getOrDefault(foundUser.getUserId(), List.of()));
+                cacheLoadedUserWithBooks(userWithBookIds, cacheGenerations.get(foundUser.getUserId()));
+                foundUsersWithBookIds.put(foundUser.getUserId(), userWithBookIds);
+            }
+            notCachedUserIds.stream()
+                    .filter(userId -> !foundUsersWithBookIds.containsKey(userId))
+                    .forEach(userIdFilter::markAbsent);
+        }
+        log.info("Found {} users, {} of them in cache",
+                foundUsersWithBookIds.size(), distinctUserIds.size() - notCachedUserIds.size());
+
+        return distinctUserIds.stream()
+                .map(foundUsersWithBookIds::get)
+                .filter(Objects::nonNull)
+                .map(userWithBookIds -> UserBookResponse.builder()
+                        .userId(userWithBookIds.getUser().getUserId())
+                        .booksIdList(userWithBookIds.getBookIds())
+                        .build())
+                .toList();
+    }
+
+    public void forEachUserBook(Long userId, Long afterBookId, Integer pageSize, Consumer<BookDto> bookConsumer) {
+        int size = pageSize == null ? defaultBooksPageSize : Math.min(Math.max(pageSize, 1), maxBooksPageSize);
+        long cursor = afterBookId == null ? 0L : afterBookId;
+        log.info("Got request to get books of user #{} after book #{}, page size {}", userId, cursor, size);
+
+        bookService.forEachBookByUserId(userId, cursor, size, bookConsumer);
+    }
+
+    public void exportUsersWithBooks(Consumer<UserWithBooksDto> userConsumer) {
+        log.info("Got request to export all users with their books");
+        userService.forEachUserWithBooks(userConsumer);
     }
 
-    public void deleteUserWithBooks(Long userId) {
+    @Transactional
+    public UserDeleteResponse deleteUserWithBooks(Long userId) {
         log.info("Got request to delete user & it's books by id: {}", userId);
-        userService.deleteUserById(userId);
-        log.info("Deleted user with id #{}", userId);
+        int deletedBooksCount = bookService.deleteAllBooksByUserId(userId);
+        log.info("Deleted {} books of user with id #{}", deletedBooksCount, userId);
+
+        int deletedUsersCount = userService.deleteUserById(userId);
+        log.info("Deleted {} users with id #{}", deletedUsersCount, userId);
+        invalidateAfterCommit(userId);
+
+        return UserDeleteResponse.builder()
+                .usersCount(deletedUsersCount)
+                .booksCount(deletedBooksCount)
+                .build();
+    }
 
-        bookService.getAllBooksByUserId(userId).stream()
+    /**
+     * Книги из запроса без null и повторов: книга пользователя уникальна по названию, автору и числу страниц.
+     */
+    private List<BookDto> mapDistinctBooks(List<BookRequest> bookRequests, Long userId) {
+        return bookRequests.stream()
                 .filter(Objects::nonNull)
-                .peek(deletedBook -> log.info("Deleted book: {}", deletedBook))
-                .map(BookDto::getId)
-                .forEach(bookId -> bookService.deleteBookById(bookId));
+                .map(bookMapper::bookRequestToBookDto)
+                .peek(bookDto -> bookDto.setUserId(userId))
+                .peek(mappedBookDto -> log.debug("Mapped book: {}", mappedBookDto))
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Заведомо отсутствующие id отклоняются без запроса к базе,
+     * одновременные промахи по одному пользователю ждут одной загрузки.
+     */
+    private UserBookIdsDto loadUserWithBooksOnce(Long userId) {
+        if (userIdFilter.isAbsent(userId)) {
+            throw new UserServiceException("User with id #" + userId + " not found");
+        }
+        return userBooksSingleFlight.load(userId, this::loadUserWithBooks);
+    }
+
+    private UserBookIdsDto loadUserWithBooks(Long userId) {
+        UserBookIdsDto userWithBookIds;
+        try {
+            userWithBookIds = userService.getUserWithBookIdsById(userId);
+        } catch (UserServiceException e) {
+            userIdFilter.markAbsent(userId);
+            throw e;
+        }
+        return userWithBookIds.withETag(eTagOf(userWithBookIds));
+    }
+
+    private void cacheUserWithBooks(UserBookIdsDto userWithBookIds) {
+        userBooksCache.put(userWithBookIds.getUser().getUserId(), userWithBookIds.withETag(eTagOf(userWithBookIds)));
+    }
+
+    /**
+     * Сохраняет прочитанное до изменения пользователя, только если его не инвалидировали во время чтения.
+     */
+    private void cacheLoadedUserWithBooks(UserBookIdsDto userWithBookIds, long generation) {
+        userBooksCache.putIfCurrent(userWithBookIds.getUser().getUserId(),
+                userWithBookIds.withETag(eTagOf(userWithBookIds)), generation);
+    }
+
+    /**
+     * Сначала забывается идущая загрузка, затем сбрасывается кэш: промахнувшиеся после сброса начнут новую
+     * загрузку, а не присоединятся к начатой до изменения и не сохранят её результат.
+     */
+    private void invalidate(Long userId) {
+        userBooksSingleFlight.forget(userId);
+        userBooksCache.invalidate(userId);
+    }
+
+    private void invalidateAfterCommit(Long userId) {
+        invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(userId);
+                    if (status == STATUS_COMMITTED) {
+                        userIdFilter.markAbsent(userId);
+                    }
+                }
+            });
+        } else {
+            userIdFilter.markAbsent(userId);
+        }
+    }
+
+    /**
+     * Id отмечаются сразу и ещё раз после коммита: перестроение фильтра, начавшееся до коммита,
+     * не видит эти строки в базе.
+     */
+    private void markPresentAfterCommit(List<Long> userIds) {
+        userIds.forEach(userIdFilter::markPresent);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userIds.forEach(userIdFilter::markPresent);
+                }
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Строгий ETag по содержимому: 64-битный FNV-1a от полей пользователя и списка id книг.
+     * Не зависит от экземпляра приложения и не меняется при повторной загрузке тех же данных.
+     */
+    static String eTagOf(UserBookIdsDto userWithBookIds) {
+        UserDto user = userWithBookIds.getUser();
+        String content = user.getUserId() + "|" + user.getFullName() + "|" + user.getTitle() + "|" + user.getAge()
+                + "|" + userWithBookIds.getBookIds();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < content.length(); i++) {
+            hash ^= content.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
     }
 }
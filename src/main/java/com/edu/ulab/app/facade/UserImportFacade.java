@@ -0,0 +1,107 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.cache.ExistenceFilter;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.ImportResultDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.UserBookImportService;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserImportResponse;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+@Slf4j
+@Component
+@Timed("app.facade")
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "jdbc")
+public class UserImportFacade {
+    private final UserBookImportService userBookImportService;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+    private final ExistenceFilter userIdFilter;
+
+    public UserImportFacade(UserBookImportService userBookImportService,
+                            UserMapper userMapper,
+                            BookMapper bookMapper,
+                            ExistenceFilter userIdFilter) {
+        this.userBookImportService = userBookImportService;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+        this.userIdFilter = userIdFilter;
+    }
+
+    /**
+     * Записи без пользователя пропускаются, остальные отображаются в dto по мере чтения сервисом;
+     * повторы книги у одного пользователя отбрасываются, чтобы COPY не упал на уникальном индексе.
+     * Загруженные id отмечаются в фильтре id пользователей после коммита импорта, чтобы не считались отсутствующими.
+     */
+    public UserImportResponse importUsersWithBooks(Iterator<UserBookRequest> userBookRequests) {
+        UserWithBooksIterator usersWithBooks = new UserWithBooksIterator(userBookRequests);
+        ImportResultDto result = userBookImportService.importUsersWithBooks(usersWithBooks);
+        result.getUserIds().forEach(userIdFilter::markPresent);
+        if (usersWithBooks.skippedCount > 0) {
+            log.warn("Skipped {} import records without user", usersWithBooks.skippedCount);
+        }
+
+        return UserImportResponse.builder()
+                .usersCount(result.getUsersCount())
+                .booksCount(result.getBooksCount())
+                .skippedCount(usersWithBooks.skippedCount)
+                .build();
+    }
+
+    private UserWithBooksDto toUserWithBooks(UserBookRequest userBookRequest) {
+        List<BookDto> books = userBookRequest.getBookRequests() == null
+                ? Collections.emptyList()
+                : userBookRequest.getBookRequests()
+                        .stream()
+                        .filter(Objects::nonNull)
+                        .map(bookMapper::bookRequestToBookDto)
+                        .distinct()
+                        .toList();
+        return new UserWithBooksDto(userMapper.userRequestToUserDto(userBookRequest.getUserRequest()), books);
+    }
+
+    private class UserWithBooksIterator implements Iterator<UserWithBooksDto> {
+        private final Iterator<UserBookRequest> userBookRequests;
+        private UserWithBooksDto next;
+        private long skippedCount;
+
+        UserWithBooksIterator(Iterator<UserBookRequest> userBookRequests) {
+            this.userBookRequests = userBookRequests;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && userBookRequests.hasNext()) {
+                UserBookRequest userBookRequest = userBookRequests.next();
+                if (userBookRequest == null || userBookRequest.getUserRequest() == null) {
+                    skippedCount++;
+                } else {
+                    next = toUserWithBooks(userBookRequest);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public UserWithBooksDto next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            UserWithBooksDto current = next;
+            next = null;
+            return current;
+        }
+    }
+}
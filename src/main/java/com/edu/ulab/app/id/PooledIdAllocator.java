@@ -0,0 +1,86 @@
+package com.edu.ulab.app.id;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Выдаёт id для вставок через JdbcTemplate блоками из последовательности, как pooled-lo в Hibernate:
+ * значение nextval - начало блока из allocationSize id.
+ * <p>
+ * Сколько бы id ни понадобилось, недостающие блоки запрашиваются одним запросом.
+ * <p>
+ * Шаг последовательности задаётся миграцией, поэтому при создании проверяется, что он равен allocationSize:
+ * иначе блоки пересекались бы с id, выданными другими экземплярами и генератором Hibernate.
+ */
+public class PooledIdAllocator {
+
+    private static final String NEXT_BLOCKS_SQL = "SELECT nextval('%s') FROM generate_series(1, ?)";
+    private static final String INCREMENT_SQL =
+            "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nextBlocksSql;
+    private final int allocationSize;
+
+    private long nextId;
+    private long blockEnd;
+
+    public PooledIdAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int allocationSize) {
+        if (allocationSize <= 0) {
+            throw new IllegalArgumentException("Allocation size should be positive: " + allocationSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.nextBlocksSql = String.format(NEXT_BLOCKS_SQL, sequenceName);
+        this.allocationSize = allocationSize;
+        verifyIncrement(sequenceName);
+    }
+
+    public synchronized long nextId() {
+        if (nextId == blockEnd) {
+            startBlock(fetchBlocks(1).get(0));
+        }
+        return nextId++;
+    }
+
+    public synchronized long[] nextIds(int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count && nextId < blockEnd) {
+            ids[filled++] = nextId++;
+        }
+        if (filled == count) {
+            return ids;
+        }
+
+        int missing = count - filled;
+        List<Long> blockStarts = fetchBlocks((missing + allocationSize - 1) / allocationSize);
+        for (Long blockStart : blockStarts) {
+            startBlock(blockStart);
+            while (filled < count && nextId < blockEnd) {
+                ids[filled++] = nextId++;
+            }
+        }
+        return ids;
+    }
+
+    private void verifyIncrement(String sequenceName) {
+        List<Long> increments = jdbcTemplate.queryForList(INCREMENT_SQL, Long.class, sequenceName);
+        if (increments.isEmpty()) {
+            throw new IllegalStateException("Sequence " + sequenceName + " not found in current schema");
+        }
+        if (increments.get(0) != allocationSize) {
+            throw new IllegalStateException("Sequence " + sequenceName + " increments by " + increments.get(0)
+                    + ", but allocation size is " + allocationSize);
+        }
+    }
+
+    private List<Long> fetchBlocks(int blockCount) {
+        return jdbcTemplate.queryForList(nextBlocksSql, Long.class, blockCount);
+    }
+
+    private void startBlock(long blockStart) {
+        nextId = blockStart;
+        blockEnd = blockStart + allocationSize;
+    }
+}
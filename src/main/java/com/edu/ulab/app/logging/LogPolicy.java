@@ -0,0 +1,67 @@
+package com.edu.ulab.app.logging;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ограничивает стоимость логирования на горячих путях: выборочная запись частых сообщений
+ * и обрезка коллекций в аргументах.
+ * <p>
+ * Проверка {@link #sampled} делается до формирования аргументов, поэтому пропущенное сообщение
+ * не вызывает toString у dto и не доходит до appender.
+ */
+@Component
+public class LogPolicy {
+
+    private final Map<String, Double> sampleRates;
+    private final int maxCollectionElements;
+
+    public LogPolicy(LoggingProperties properties) {
+        this.sampleRates = Map.copyOf(properties.getSampleRates());
+        this.maxCollectionElements = properties.getMaxCollectionElements();
+    }
+
+    /**
+     * Нужно ли записать очередное сообщение с ключом key.
+     */
+    public boolean sampled(String key) {
+        Double rate = sampleRates.get(key);
+        if (rate == null || rate >= 1.0) {
+            return true;
+        }
+        return rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * Аргумент лога, который при форматировании выводит не больше maxCollectionElements элементов и общий размер.
+     */
+    public Object capped(Collection<?> collection) {
+        return new CappedCollection(collection, maxCollectionElements);
+    }
+
+    private record CappedCollection(Collection<?> collection, int maxElements) {
+
+        @Override
+        public String toString() {
+            if (collection == null) {
+                return "null";
+            }
+            StringBuilder result = new StringBuilder("[");
+            Iterator<?> iterator = collection.iterator();
+            for (int i = 0; i < maxElements && iterator.hasNext(); i++) {
+                if (i > 0) {
+                    result.append(", ");
+                }
+                result.append(iterator.next());
+            }
+            if (iterator.hasNext()) {
+                result.append(", ... ").append(collection.size() - maxElements).append(" more");
+            }
+            return result.append(']').toString();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.edu.ulab.app.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки {@link LogPolicy}: доля записываемых сообщений по ключу и сколько элементов коллекции попадает в лог.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.logging")
+public class LoggingProperties {
+
+    /**
+     * Доля сообщений с данным ключом, которая пишется в лог, от 0 до 1. Ключи без настройки пишутся всегда.
+     */
+    private Map<String, Double> sampleRates = new HashMap<>();
+
+    /**
+     * Сколько первых элементов коллекции выводится, остальные заменяются их количеством.
+     */
+    private int maxCollectionElements = 10;
+}
@@ -16,6 +16,7 @@ public class BookRowMapper implements RowMapper<Book> {
         book.setTitle(resultSet.getString("title"));
         book.setAuthor(resultSet.getString("author"));
         book.setPageCount(resultSet.getLong("page_count"));
+        book.setVersion(resultSet.getLong("version"));
 
         return book;
     }
@@ -1,6 +1,5 @@
 package com.edu.ulab.app.mapper;
 
-import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.entity.Person;
 import org.springframework.jdbc.core.RowMapper;
 
@@ -14,8 +13,9 @@ public class UserRowMapper implements RowMapper<Person> {
         Person user = new Person();
         user.setUserId(resultSet.getLong("id"));
         user.setFullName(resultSet.getString("full_name"));
-        user.setFullName(resultSet.getString("title"));
+        user.setTitle(resultSet.getString("title"));
         user.setAge(resultSet.getInt("age"));
+        user.setVersion(resultSet.getLong("version"));
 
         return user;
     }
@@ -0,0 +1,55 @@
+package com.edu.ulab.app.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Записывает в app.service.rows, сколько элементов вернул метод сервиса, если он вернул коллекцию или Map.
+ * Вместе с таймером app.service показывает, растёт ли время запроса вместе с объёмом ответа.
+ * <p>
+ * Счётчик каждого метода регистрируется при первом вызове и дальше берётся из map без построения тегов.
+ */
+@Aspect
+@Component
+public class ServiceRowsAspect {
+
+    public static final String ROWS_METRIC = "app.service.rows";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public ServiceRowsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @AfterReturning(pointcut = "execution(public * com.edu.ulab.app.service.impl..*(..))", returning = "result")
+    public void recordRows(JoinPoint joinPoint, Object result) {
+        long rows;
+        if (result instanceof Collection<?> collection) {
+            rows = collection.size();
+        } else if (result instanceof Map<?, ?> map) {
+            rows = map.size();
+        } else {
+            return;
+        }
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        summaries.computeIfAbsent(signature.getMethod(), method -> DistributionSummary.builder(ROWS_METRIC)
+                        .baseUnit("rows")
+                        .description("Elements returned by a service method")
+                        .tag("class", signature.getDeclaringType().getSimpleName())
+                        .tag("method", signature.getName())
+                        .register(meterRegistry))
+                .record(rows);
+    }
+}
@@ -1,25 +1,48 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.Book;
-import org.springframework.data.jpa.repository.Lock;
+import com.edu.ulab.app.repository.projection.BookIdProjection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.web.bind.annotation.PathVariable;
 
-import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface BookRepository extends CrudRepository<Book, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("select b from Book b where b.id = :id")
-    Optional<Book> findByIdForUpdate(@Param("id") Long id);
+public interface BookRepository extends CrudRepository<Book, Long> {
 
+    /**
+     * Результат кэшируется в регионе bookByUserId и сбрасывается Hibernate при любой записи в book через JPA.
+     */
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "bookByUserId")})
     @Query("select b from Book b where b.userId = :user_id")
     List<Book> findAllBooksByUserId(@Param("user_id") Long userId);
 
+    @Query("select b.id from Book b where b.userId = :user_id order by b.id")
+    List<Long> findAllBookIdsByUserId(@Param("user_id") Long userId);
+
+    @Query("select b.userId as userId, b.id as bookId from Book b where b.userId in :user_ids order by b.id")
+    List<BookIdProjection> findAllBookIdsByUserIds(@Param("user_ids") Collection<Long> userIds);
+
+    @Query("select b from Book b where b.userId = :user_id and b.id > :after_id order by b.id")
+    List<Book> findBooksPageByUserId(@Param("user_id") Long userId,
+                                     @Param("after_id") Long afterBookId,
+                                     Pageable pageable);
+
+    @Modifying
+    @Query("delete from Book b where b.userId = :user_id")
+    int deleteAllBooksByUserId(@Param("user_id") Long userId);
+
     @Query("select b from Book b where b.userId = :#{#book.userId} " +
             "and b.title = :#{#book.title} " +
             "and b.author = :#{#book.author} " +
@@ -1,13 +1,19 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.Person;
-import org.springframework.data.jpa.repository.Lock;
+import com.edu.ulab.app.repository.projection.UserBookIdProjection;
+import com.edu.ulab.app.repository.projection.UserBookProjection;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
-import javax.persistence.LockModeType;
-import java.util.Optional;
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface UserRepository extends CrudRepository<Person, Long> {
 
@@ -17,7 +23,26 @@ public interface UserRepository extends CrudRepository<Person, Long> {
     User has books - book - finished
      */
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("select p from Person p where p.userId = :id")
-    Optional<Person> findByIdForUpdate(@Param("id") Long id);
+    @Query("select p.userId as userId, p.fullName as fullName, p.title as title, p.age as age, b.id as bookId " +
+            "from Person p left join Book b on b.userId = p.userId " +
+            "where p.userId = :id order by b.id")
+    List<UserBookIdProjection> findUserWithBookIdsById(@Param("id") Long id);
+
+    /**
+     * Все пользователи с книгами, упорядоченные по id пользователя; строки читаются курсором по мере обхода.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.userId as userId, p.fullName as fullName, p.title as title, p.age as age, " +
+            "b.id as bookId, b.title as bookTitle, b.author as bookAuthor, b.pageCount as bookPageCount " +
+            "from Person p left join Book b on b.userId = p.userId " +
+            "order by p.userId, b.id")
+    Stream<UserBookProjection> streamAllUsersWithBooks();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    @Query("select p.userId from Person p")
+    Stream<Long> streamAllUserIds();
+
+    @Modifying
+    @Query("delete from Person p where p.userId = :id")
+    int deleteUserById(@Param("id") Long id);
 }
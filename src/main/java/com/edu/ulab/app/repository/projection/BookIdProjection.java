@@ -0,0 +1,11 @@
+package com.edu.ulab.app.repository.projection;
+
+/**
+ * Id книги вместе с id её пользователя.
+ */
+public interface BookIdProjection {
+
+    Long getUserId();
+
+    Long getBookId();
+}
@@ -0,0 +1,18 @@
+package com.edu.ulab.app.repository.projection;
+
+/**
+ * Строка соединения пользователя с его книгами: поля пользователя и id одной книги.
+ * Для пользователя без книг bookId равен null.
+ */
+public interface UserBookIdProjection {
+
+    Long getUserId();
+
+    String getFullName();
+
+    String getTitle();
+
+    int getAge();
+
+    Long getBookId();
+}
@@ -0,0 +1,24 @@
+package com.edu.ulab.app.repository.projection;
+
+/**
+ * Строка соединения пользователя с его книгами: поля пользователя и одной книги.
+ * Для пользователя без книг поля книги равны null.
+ */
+public interface UserBookProjection {
+
+    Long getUserId();
+
+    String getFullName();
+
+    String getTitle();
+
+    int getAge();
+
+    Long getBookId();
+
+    String getBookTitle();
+
+    String getBookAuthor();
+
+    Long getBookPageCount();
+}
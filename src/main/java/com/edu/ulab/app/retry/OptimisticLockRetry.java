@@ -0,0 +1,78 @@
+package com.edu.ulab.app.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Повторяет операцию при конфликте оптимистической блокировки, каждую попытку в своей транзакции.
+ * <p>
+ * Конфликт обнаруживается при фиксации, поэтому транзакция открывается здесь, а не вокруг вызова.
+ * Внутри уже открытой транзакции повторять нечего: она помечена на откат, и операция выполняется один раз.
+ * Хранилищу в памяти не нужен: там нет ни версий, ни менеджера транзакций.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${app.storage.backend:jpa}' != 'memory'")
+public class OptimisticLockRetry {
+
+    public static final String CONFLICTS_METRIC = "app.optimistic.lock.conflicts";
+    public static final String EXHAUSTED_METRIC = "app.optimistic.lock.exhausted";
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public OptimisticLockRetry(PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.retry.optimistic.max-attempts}") int maxAttempts,
+                               @Value("${app.retry.optimistic.backoff}") Duration backoff) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoff.toMillis();
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                meterRegistry.counter(CONFLICTS_METRIC, "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter(EXHAUSTED_METRIC, "operation", operation).increment();
+                    log.warn("Optimistic lock conflict on {}, giving up after {} attempts", operation, attempt);
+                    throw e;
+                }
+                log.info("Optimistic lock conflict on {}, attempt {} of {}", operation, attempt, maxAttempts);
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    private void backoff(int attempt, OptimisticLockingFailureException conflict) {
+        if (backoffMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -3,16 +3,36 @@ package com.edu.ulab.app.service;
 
 import com.edu.ulab.app.dto.BookDto;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface BookService {
     BookDto createBook(BookDto bookDto);
 
+    List<BookDto> createBooks(List<BookDto> bookDtos);
+
     BookDto updateBook(BookDto bookDto);
 
     List<BookDto> getAllBooksByUserId(Long userId);
 
+    List<Long> getAllBookIdsByUserId(Long userId);
+
+    /**
+     * Id книг нескольких пользователей одним запросом, по возрастанию; пользователей без книг в ответе нет.
+     */
+    Map<Long, List<Long>> getAllBookIdsByUserIds(Collection<Long> userIds);
+
+    /**
+     * Передаёт в consumer не больше pageSize книг пользователя с id больше afterBookId
+     * в порядке возрастания id, не собирая их в список.
+     */
+    void forEachBookByUserId(Long userId, Long afterBookId, int pageSize, Consumer<BookDto> bookConsumer);
+
     BookDto getBookById(Long id);
 
     void deleteBookById(Long id);
+
+    int deleteAllBooksByUserId(Long userId);
 }
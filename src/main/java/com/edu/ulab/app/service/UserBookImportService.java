@@ -0,0 +1,14 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.ImportResultDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+
+import java.util.Iterator;
+
+public interface UserBookImportService {
+
+    /**
+     * Загружает пользователей с книгами в одной транзакции, читая их из итератора пачками.
+     */
+    ImportResultDto importUsersWithBooks(Iterator<UserWithBooksDto> usersWithBooks);
+}
@@ -1,15 +1,50 @@
 package com.edu.ulab.app.service;
 
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
 @Repository
 public interface UserService {
     UserDto createUser(UserDto userDto);
 
+    /**
+     * Сохраняет пользователей пачкой, возвращает их в том же порядке с выданными id.
+     */
+    List<UserDto> createUsers(List<UserDto> userDtos);
+
     UserDto updateUser(UserDto userDto);
 
     UserDto getUserById(Long id);
 
-    void deleteUserById(Long id);
+    /**
+     * Найденные пользователи из переданных id одним запросом; отсутствующие id пропускаются.
+     */
+    List<UserDto> getUsersByIds(Collection<Long> ids);
+
+    /**
+     * Пользователь вместе с id его книг, прочитанные одним запросом.
+     */
+    UserBookIdsDto getUserWithBookIdsById(Long id);
+
+    /**
+     * Передаёт в consumer всех пользователей с их книгами по одному, не собирая их в список.
+     */
+    void forEachUserWithBooks(Consumer<UserWithBooksDto> userConsumer);
+
+    /**
+     * Передаёт в consumer id всех пользователей, читая их курсором.
+     */
+    void forEachUserId(LongConsumer userIdConsumer);
+
+    /**
+     * Возвращает число удалённых пользователей: 0, если пользователя не было.
+     */
+    int deleteUserById(Long id);
 }
@@ -1,5 +1,6 @@
 package com.edu.ulab.app.service.filter;
 
+import com.edu.ulab.app.logging.LogPolicy;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
@@ -14,13 +15,23 @@ import java.io.IOException;
 @Slf4j
 @Component
 public class HttpRequestFilter extends OncePerRequestFilter {
+    private static final String REQUEST_ID_LOG = "http-request-id";
+
+    private final LogPolicy logPolicy;
+
+    public HttpRequestFilter(LogPolicy logPolicy) {
+        this.logPolicy = logPolicy;
+    }
+
     @Override
     protected void doFilterInternal(final HttpServletRequest request,
                                     final HttpServletResponse response,
                                     final FilterChain filterChain) throws ServletException, IOException {
         String requestId = request.getHeader("rqid");
         MDC.put("requestId", requestId);
-        log.info("RequestId : {}", requestId);
+        if (logPolicy.sampled(REQUEST_ID_LOG)) {
+            log.info("RequestId : {}", requestId);
+        }
         try {
             filterChain.doFilter(request, response);
         } finally {
@@ -5,82 +5,142 @@ import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.exception.BookServiceException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.projection.BookIdProjection;
+import com.edu.ulab.app.retry.OptimisticLockRetry;
 import com.edu.ulab.app.service.BookService;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@Timed(value = "app.service", extraTags = {"backend", "jpa"})
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "jpa", matchIfMissing = true)
 public class BookServiceImpl implements BookService {
 
     private final BookRepository bookRepository;
 
     private final BookMapper bookMapper;
 
-    public BookServiceImpl(BookRepository bookRepository, BookMapper bookMapper) {
+    private final OptimisticLockRetry optimisticLockRetry;
+
+    public BookServiceImpl(BookRepository bookRepository,
+                           BookMapper bookMapper,
+                           OptimisticLockRetry optimisticLockRetry) {
         this.bookRepository = bookRepository;
         this.bookMapper = bookMapper;
+        this.optimisticLockRetry = optimisticLockRetry;
     }
 
     @Override
     public BookDto createBook(BookDto bookDto) {
         Book book = bookMapper.bookDtoToBook(bookDto);
-        log.info("Mapped book: {}", book);
+        log.debug("Mapped book: {}", book);
         Book savedBook = bookRepository.save(book);
-        log.info("Saved book: {}", savedBook);
+        log.debug("Saved book: {}", savedBook);
         return bookMapper.bookToBookDto(savedBook);
     }
 
+    @Override
+    @Transactional
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        List<Book> books = bookDtos.stream()
+                .map(bookMapper::bookDtoToBook)
+                .toList();
+        Iterable<Book> savedBooks = bookRepository.saveAll(books);
+        log.info("Saved {} books", books.size());
+
+        List<BookDto> result = new ArrayList<>(books.size());
+        savedBooks.forEach(book -> result.add(bookMapper.bookToBookDto(book)));
+        return result;
+    }
+
     @Override
     public BookDto updateBook(BookDto bookDto) {
         Book currentBook = bookMapper.bookDtoToBook(bookDto);
-        log.info("Mapped book: {}", currentBook);
-
-        Book bookByCurrentParamFromDB = bookRepository.findBookByParamWithoutId(currentBook)
-                        .orElse(bookMapper.bookDtoToBook(createBook(bookDto)));
-        log.info("Got book from DB for update: {}", bookByCurrentParamFromDB);
+        log.debug("Mapped book: {}", currentBook);
 
-        currentBook.setId(bookByCurrentParamFromDB.getId());
-        Book updatedBook = bookRepository.save(currentBook);
-        log.info("Updated book: {}", updatedBook);
+        Book updatedBook = bookRepository.findBookByParamWithoutId(currentBook)
+                .orElseGet(() -> saveOrFindConcurrent(currentBook));
+        log.debug("Updated book: {}", updatedBook);
 
         return bookMapper.bookToBookDto(updatedBook);
     }
 
     public BookDto updateBook(Long bookId, BookDto bookDto) {
         Book currentBook = bookMapper.bookDtoToBook(bookDto);
-        log.info("Mapped book: {}", currentBook);
-
-        Book bookByIdFromDB = bookRepository.findByIdForUpdate(bookId)
-                .orElseThrow(() -> new BookServiceException("Book with id #" + bookId + " not found"));
-        log.info("Got book from DB for update: {}", bookByIdFromDB);
-
-        currentBook.setId(bookByIdFromDB.getId());
-        Book updatedBook = bookRepository.save(currentBook);
-        log.info("Updated book: {}", updatedBook);
-
-        return bookMapper.bookToBookDto(updatedBook);
+        log.debug("Mapped book: {}", currentBook);
+
+        return optimisticLockRetry.execute("updateBook", () -> {
+            Book bookByIdFromDB = bookRepository.findById(bookId)
+                    .orElseThrow(() -> new BookServiceException("Book with id #" + bookId + " not found"));
+            log.debug("Got book from DB for update: {}", bookByIdFromDB);
+
+            bookByIdFromDB.setUserId(currentBook.getUserId());
+            bookByIdFromDB.setTitle(currentBook.getTitle());
+            bookByIdFromDB.setAuthor(currentBook.getAuthor());
+            bookByIdFromDB.setPageCount(currentBook.getPageCount());
+            Book updatedBook = bookRepository.save(bookByIdFromDB);
+            log.debug("Updated book: {}", updatedBook);
+
+            return bookMapper.bookToBookDto(updatedBook);
+        });
     }
 
     public List<BookDto> getAllBooksByUserId(Long userId) {
         log.info("Got user's id #{} to look for books", userId);
         List<Book> allBooksByUserId = bookRepository.findAllBooksByUserId(userId);
-        log.info("All books by user's id: {}", allBooksByUserId);
+        log.info("Found {} books by user's id #{}", allBooksByUserId.size(), userId);
+        log.debug("All books by user's id: {}", allBooksByUserId);
 
         return allBooksByUserId.stream()
                 .map(book -> bookMapper.bookToBookDto(book))
                 .toList();
     }
 
+    @Override
+    public List<Long> getAllBookIdsByUserId(Long userId) {
+        List<Long> bookIds = bookRepository.findAllBookIdsByUserId(userId);
+        log.info("Found {} book ids by user's id #{}", bookIds.size(), userId);
+        return bookIds;
+    }
+
+    @Override
+    public Map<Long, List<Long>> getAllBookIdsByUserIds(Collection<Long> userIds) {
+        List<BookIdProjection> rows = bookRepository.findAllBookIdsByUserIds(userIds);
+        log.info("Found {} book ids by {} user ids", rows.size(), userIds.size());
+
+        return rows.stream()
+                .collect(Collectors.groupingBy(BookIdProjection::getUserId,
+                        Collectors.mapping(BookIdProjection::getBookId, Collectors.toList())));
+    }
+
+    @Override
+    public void forEachBookByUserId(Long userId, Long afterBookId, int pageSize, Consumer<BookDto> bookConsumer) {
+        List<Book> booksPage = bookRepository.findBooksPageByUserId(userId, afterBookId, PageRequest.ofSize(pageSize));
+        log.info("Found {} books by user's id #{} after book id #{}", booksPage.size(), userId, afterBookId);
+
+        booksPage.forEach(book -> bookConsumer.accept(bookMapper.bookToBookDto(book)));
+    }
+
     @Override
     public BookDto getBookById(Long id) {
         log.info("Got book id #{}", id);
         Book foundBookById = bookRepository.findById(id)
                 .orElseThrow(() -> new BookServiceException("Book with id #" + id + " not found")
         );
-        log.info("Found book by id #{}: {}", id, foundBookById);
+        log.debug("Found book by id #{}: {}", id, foundBookById);
         return bookMapper.bookToBookDto(foundBookById);
     }
 
@@ -90,4 +150,26 @@ public class BookServiceImpl implements BookService {
         bookRepository.deleteById(id);
         log.info("Deleted book with id #{}", id);
     }
+
+    @Override
+    @Transactional
+    public int deleteAllBooksByUserId(Long userId) {
+        log.info("Got user id #{} to delete all his books", userId);
+        int deletedBooksCount = bookRepository.deleteAllBooksByUserId(userId);
+        log.info("Deleted {} books of user #{}", deletedBooksCount, userId);
+        return deletedBooksCount;
+    }
+
+    /**
+     * Между поиском и вставкой ту же книгу мог сохранить одновременный запрос: тогда уникальный индекс
+     * отклоняет вставку и возвращается уже сохранённая книга.
+     */
+    private Book saveOrFindConcurrent(Book book) {
+        try {
+            return bookRepository.save(book);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Book was saved concurrently: {}", book);
+            return bookRepository.findBookByParamWithoutId(book).orElseThrow(() -> e);
+        }
+    }
 }
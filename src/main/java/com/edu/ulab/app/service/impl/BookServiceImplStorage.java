@@ -0,0 +1,122 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.exception.BookServiceException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.storage.Storage;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Slf4j
+@Service
+@Timed(value = "app.service", extraTags = {"backend", "memory"})
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "memory")
+public class BookServiceImplStorage implements BookService {
+
+    private final Storage storage;
+    private final BookMapper bookMapper;
+
+    public BookServiceImplStorage(Storage storage, BookMapper bookMapper) {
+        this.storage = storage;
+        this.bookMapper = bookMapper;
+    }
+
+    @Override
+    public BookDto createBook(BookDto bookDto) {
+        Book book = bookMapper.bookDtoToBook(bookDto);
+        book.setId(null);
+        Book savedBook = storage.saveBook(book);
+        log.debug("Saved book: {}", savedBook);
+        return bookMapper.bookToBookDto(savedBook);
+    }
+
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        return bookDtos.stream()
+                .map(this::createBook)
+                .toList();
+    }
+
+    @Override
+    public BookDto updateBook(BookDto bookDto) {
+        Book currentBook = bookMapper.bookDtoToBook(bookDto);
+        log.debug("Mapped book: {}", currentBook);
+
+        Book bookFromStorage = storage.findBooksByUserId(currentBook.getUserId())
+                .stream()
+                .filter(book -> book.getTitle().equals(currentBook.getTitle())
+                        && book.getAuthor().equals(currentBook.getAuthor())
+                        && book.getPageCount() == currentBook.getPageCount())
+                .findFirst()
+                .orElseGet(() -> storage.saveBook(currentBook));
+        log.debug("Updated book: {}", bookFromStorage);
+
+        return bookMapper.bookToBookDto(bookFromStorage);
+    }
+
+    @Override
+    public List<BookDto> getAllBooksByUserId(Long userId) {
+        List<Book> allBooksByUserId = storage.findBooksByUserId(userId);
+        log.info("Found {} books by user's id #{}", allBooksByUserId.size(), userId);
+
+        return allBooksByUserId.stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
+    @Override
+    public List<Long> getAllBookIdsByUserId(Long userId) {
+        return storage.findBookIdsByUserId(userId);
+    }
+
+    @Override
+    public Map<Long, List<Long>> getAllBookIdsByUserIds(Collection<Long> userIds) {
+        Map<Long, List<Long>> bookIdsByUserId = new HashMap<>();
+        for (Long userId : userIds) {
+            List<Long> bookIds = storage.findBookIdsByUserId(userId);
+            if (!bookIds.isEmpty()) {
+                bookIdsByUserId.put(userId, bookIds);
+            }
+        }
+        return bookIdsByUserId;
+    }
+
+    @Override
+    public void forEachBookByUserId(Long userId, Long afterBookId, int pageSize, Consumer<BookDto> bookConsumer) {
+        storage.findBooksPageByUserId(userId, afterBookId, pageSize)
+                .forEach(book -> bookConsumer.accept(bookMapper.bookToBookDto(book)));
+    }
+
+    @Override
+    public BookDto getBookById(Long id) {
+        BookDto foundBook = storage.findBookById(id)
+                .map(bookMapper::bookToBookDto)
+                .orElseThrow(() -> new BookServiceException("Book with id #" + id + " not found"));
+        log.debug("Found book by id #{}: {}", id, foundBook);
+
+        return foundBook;
+    }
+
+    @Override
+    public void deleteBookById(Long id) {
+        boolean deleted = storage.deleteBookById(id);
+        log.info("Book with id #{} deleted: {}", id, deleted);
+    }
+
+    @Override
+    public int deleteAllBooksByUserId(Long userId) {
+        int deletedBooksCount = storage.deleteBooksByUserId(userId);
+        log.info("How many books of user #{} deleted: {}", userId, deletedBooksCount);
+        return deletedBooksCount;
+    }
+}
@@ -5,90 +5,208 @@ import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.BookServiceException;
+import com.edu.ulab.app.id.PooledIdAllocator;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.mapper.BookRowMapper;
+import com.edu.ulab.app.retry.OptimisticLockRetry;
 import com.edu.ulab.app.service.BookService;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Optional;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
+@Timed(value = "app.service", extraTags = {"backend", "jdbc"})
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "jdbc")
 public class BookServiceImplTemplate implements BookService {
 
     private final JdbcTemplate jdbcTemplate;
 
     private final BookMapper bookMapper;
 
-    private final String INSERT_SQL = "INSERT INTO BOOK(TITLE, AUTHOR, PAGE_COUNT, USER_ID) VALUES (?,?,?,?)";
-    private final String UPDATE_SQL = "UPDATE BOOK SET USER_ID = ?, TITLE = ?, AUTHOR = ?, PAGE_COUNT = ? WHERE ID = ?";
+    private final PooledIdAllocator bookIdAllocator;
+
+    private final OptimisticLockRetry optimisticLockRetry;
+
+    private final String INSERT_SQL = "INSERT INTO BOOK(ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID) VALUES (?,?,?,?,?)";
+    private final String INSERT_IF_ABSENT_SQL = "INSERT INTO BOOK(ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID) " +
+            "VALUES (?,?,?,?,?) ON CONFLICT (USER_ID, TITLE, AUTHOR, PAGE_COUNT) DO NOTHING RETURNING ID";
+    private final String SELECT_BOOK_ID_BY_PARAMS_SQL =
+            "SELECT ID FROM BOOK WHERE USER_ID = ? AND TITLE = ? AND AUTHOR = ? AND PAGE_COUNT = ?";
+    private final String UPDATE_SQL = "UPDATE BOOK SET USER_ID = ?, TITLE = ?, AUTHOR = ?, PAGE_COUNT = ?, " +
+            "VERSION = VERSION + 1 WHERE ID = ? AND VERSION = ?";
     private final String SELECT_ALL_BOOKS_BY_USER_ID_SQL = "SELECT * FROM BOOK WHERE USER_ID = ?";
+    private final String SELECT_ALL_BOOK_IDS_BY_USER_ID_SQL = "SELECT ID FROM BOOK WHERE USER_ID = ? ORDER BY ID";
+    private final String SELECT_ALL_BOOK_IDS_BY_USER_IDS_SQL =
+            "SELECT USER_ID, ID FROM BOOK WHERE USER_ID = ANY(?) ORDER BY ID";
+    private final String SELECT_BOOKS_PAGE_BY_USER_ID_SQL =
+            "SELECT * FROM BOOK WHERE USER_ID = ? AND ID > ? ORDER BY ID LIMIT ?";
     private final String SELECT_BOOK_BY_ID_SQL = "SELECT * FROM BOOK WHERE ID = ?";
     private final String DELETE_SQL = "DELETE FROM BOOK WHERE ID = ?";
+    private final String DELETE_ALL_BOOKS_BY_USER_ID_SQL = "DELETE FROM BOOK WHERE USER_ID = ?";
 
-    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate, BookMapper bookMapper) {
+    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate,
+                                   BookMapper bookMapper,
+                                   PooledIdAllocator bookIdAllocator,
+                                   OptimisticLockRetry optimisticLockRetry) {
         this.jdbcTemplate = jdbcTemplate;
         this.bookMapper = bookMapper;
+        this.bookIdAllocator = bookIdAllocator;
+        this.optimisticLockRetry = optimisticLockRetry;
     }
 
     @Override
     public BookDto createBook(BookDto bookDto) {
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                new PreparedStatementCreator() {
-                    public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
-                        PreparedStatement ps =
-                                connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                        ps.setString(1, bookDto.getTitle());
-                        ps.setString(2, bookDto.getAuthor());
-                        ps.setLong(3, bookDto.getPageCount());
-                        ps.setLong(4, bookDto.getUserId());
-                        return ps;
-                    }
-                },
-                keyHolder);
-
-        bookDto.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
-        log.info("Create book: {}", bookDto);
+        long bookId = bookIdAllocator.nextId();
+        jdbcTemplate.update(INSERT_SQL, bookId,
+                bookDto.getTitle(),
+                bookDto.getAuthor(),
+                bookDto.getPageCount(),
+                bookDto.getUserId());
+
+        bookDto.setId(bookId);
+        log.debug("Create book: {}", bookDto);
         return bookDto;
     }
 
     @Override
-    public BookDto updateBook(BookDto bookDto) {
-        Book currentBook = bookMapper.bookDtoToBook(bookDto);
-        log.info("Mapped book: {}", currentBook);
-        BookDto bookFromDB = getBookById(currentBook.getId());
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return bookDtos;
+        }
+        long[] bookIds = bookIdAllocator.nextIds(bookDtos.size());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BookDto bookDto = bookDtos.get(i);
+                ps.setLong(1, bookIds[i]);
+                ps.setString(2, bookDto.getTitle());
+                ps.setString(3, bookDto.getAuthor());
+                ps.setLong(4, bookDto.getPageCount());
+                ps.setLong(5, bookDto.getUserId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return bookDtos.size();
+            }
+        });
+
+        for (int i = 0; i < bookDtos.size(); i++) {
+            bookDtos.get(i).setId(bookIds[i]);
+        }
+        log.info("Created {} books", bookDtos.size());
+
+        return bookDtos;
+    }
 
-        jdbcTemplate.update(UPDATE_SQL, currentBook.getUserId(),
-                currentBook.getTitle(),
-                currentBook.getAuthor(),
-                currentBook.getPageCount(),
-                bookFromDB.getId());
-        bookDto.setId(bookFromDB.getId());
-        log.info("Updated book: {}", bookDto);
+    /**
+     * Книга без id ищется по всем полям и создаётся, только если её нет: существующая книга не перезаписывается
+     * и не тратит id из блока. Если книгу одновременно вставил другой запрос, ON CONFLICT DO NOTHING
+     * ничего не возвращает, и id читается повторно.
+     * Книга с id обновляется по id.
+     */
+    @Override
+    public BookDto updateBook(BookDto bookDto) {
+        if (bookDto.getId() == null) {
+            Long bookId = findBookIdByParams(bookDto)
+                    .or(() -> insertBookIfAbsent(bookDto))
+                    .or(() -> findBookIdByParams(bookDto))
+                    .orElseThrow(() -> new BookServiceException("Book " + bookDto + " was neither found nor created"));
+            bookDto.setId(bookId);
+            log.debug("Found or created book: {}", bookDto);
+            return bookDto;
+        }
 
-        return bookDto;
+        Book currentBook = bookMapper.bookDtoToBook(bookDto);
+        log.debug("Mapped book: {}", currentBook);
+
+        return optimisticLockRetry.execute("updateBook", () -> {
+            Book bookFromDB = jdbcTemplate.query(SELECT_BOOK_BY_ID_SQL, new BookRowMapper(), currentBook.getId())
+                    .stream()
+                    .findFirst()
+                    .orElseThrow(() -> new BookServiceException("Book with id #" + currentBook.getId() + " not found"));
+
+            int updatedBooksCount = jdbcTemplate.update(UPDATE_SQL, currentBook.getUserId(),
+                    currentBook.getTitle(),
+                    currentBook.getAuthor(),
+                    currentBook.getPageCount(),
+                    bookFromDB.getId(),
+                    bookFromDB.getVersion());
+            if (updatedBooksCount == 0) {
+                throw new OptimisticLockingFailureException(
+                        "Book with id #" + bookFromDB.getId() + " was changed concurrently");
+            }
+            bookDto.setId(bookFromDB.getId());
+            log.debug("Updated book: {}", bookDto);
+
+            return bookDto;
+        });
     }
 
     @Override
     public List<BookDto> getAllBooksByUserId(Long userId) {
-        List<Book> allBooksByUserId = jdbcTemplate.query(SELECT_ALL_BOOKS_BY_USER_ID_SQL, new BookRowMapper());
-        log.info("All books by userId#{}: {}", userId, allBooksByUserId);
+        List<Book> allBooksByUserId = jdbcTemplate.query(SELECT_ALL_BOOKS_BY_USER_ID_SQL, new BookRowMapper(), userId);
+        log.info("Found {} books by userId#{}", allBooksByUserId.size(), userId);
 
         return allBooksByUserId.stream()
                 .map(book -> bookMapper.bookToBookDto(book))
                 .toList();
     }
 
+    @Override
+    public List<Long> getAllBookIdsByUserId(Long userId) {
+        List<Long> bookIds = jdbcTemplate.queryForList(SELECT_ALL_BOOK_IDS_BY_USER_ID_SQL, Long.class, userId);
+        log.info("Found {} book ids by userId#{}", bookIds.size(), userId);
+        return bookIds;
+    }
+
+    @Override
+    public Map<Long, List<Long>> getAllBookIdsByUserIds(Collection<Long> userIds) {
+        Map<Long, List<Long>> bookIdsByUserId = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(SELECT_ALL_BOOK_IDS_BY_USER_IDS_SQL);
+                    ps.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+                    return ps;
+                },
+                (RowCallbackHandler) resultSet -> bookIdsByUserId
+                        .computeIfAbsent(resultSet.getLong("user_id"), userId -> new ArrayList<>())
+                        .add(resultSet.getLong("id")));
+        log.info("Found book ids of {} users by {} user ids", bookIdsByUserId.size(), userIds.size());
+
+        return bookIdsByUserId;
+    }
+
+    @Override
+    public void forEachBookByUserId(Long userId, Long afterBookId, int pageSize, Consumer<BookDto> bookConsumer) {
+        BookRowMapper bookRowMapper = new BookRowMapper();
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(SELECT_BOOKS_PAGE_BY_USER_ID_SQL);
+                    ps.setFetchSize(pageSize);
+                    ps.setLong(1, userId);
+                    ps.setLong(2, afterBookId);
+                    ps.setInt(3, pageSize);
+                    return ps;
+                },
+                (RowCallbackHandler) resultSet ->
+                        bookConsumer.accept(bookMapper.bookToBookDto(bookRowMapper.mapRow(resultSet, resultSet.getRow()))));
+    }
+
     @Override
     public BookDto getBookById(Long id) {
         BookDto foundBook = jdbcTemplate.query(SELECT_BOOK_BY_ID_SQL, new BookRowMapper(), id)
@@ -96,7 +214,7 @@ public class BookServiceImplTemplate implements BookService {
                 .findFirst()
                 .map(book -> bookMapper.bookToBookDto(book))
                 .orElseThrow(() -> new BookServiceException("Book with id #" + id + " not found"));
-        log.info("Found book by id #{}: {}", id, foundBook);
+        log.debug("Found book by id #{}: {}", id, foundBook);
 
         return foundBook;
     }
@@ -106,4 +224,32 @@ public class BookServiceImplTemplate implements BookService {
         int deletedBooksCount = jdbcTemplate.update(DELETE_SQL, id);
         log.info("How many books deleted: {}", deletedBooksCount);
     }
+
+    @Override
+    public int deleteAllBooksByUserId(Long userId) {
+        int deletedBooksCount = jdbcTemplate.update(DELETE_ALL_BOOKS_BY_USER_ID_SQL, userId);
+        log.info("How many books of user #{} deleted: {}", userId, deletedBooksCount);
+        return deletedBooksCount;
+    }
+
+    private Optional<Long> findBookIdByParams(BookDto bookDto) {
+        return jdbcTemplate.queryForList(SELECT_BOOK_ID_BY_PARAMS_SQL, Long.class,
+                        bookDto.getUserId(),
+                        bookDto.getTitle(),
+                        bookDto.getAuthor(),
+                        bookDto.getPageCount())
+                .stream()
+                .findFirst();
+    }
+
+    private Optional<Long> insertBookIfAbsent(BookDto bookDto) {
+        return jdbcTemplate.queryForList(INSERT_IF_ABSENT_SQL, Long.class,
+                        bookIdAllocator.nextId(),
+                        bookDto.getTitle(),
+                        bookDto.getAuthor(),
+                        bookDto.getPageCount(),
+                        bookDto.getUserId())
+                .stream()
+                .findFirst();
+    }
 }
@@ -0,0 +1,67 @@
+package com.edu.ulab.app.service.impl;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Собирает строки для COPY ... FROM STDIN WITH (FORMAT csv).
+ * <p>
+ * Строки всегда берутся в кавычки, поэтому пустая строка отличается от NULL, который пишется пустым полем.
+ */
+public class CopyCsvBuilder {
+
+    private final StringBuilder csv = new StringBuilder();
+    private boolean rowStarted;
+
+    public CopyCsvBuilder field(String value) {
+        startField();
+        if (value != null) {
+            csv.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    csv.append('"');
+                }
+                csv.append(c);
+            }
+            csv.append('"');
+        }
+        return this;
+    }
+
+    public CopyCsvBuilder field(Long value) {
+        startField();
+        if (value != null) {
+            csv.append(value.longValue());
+        }
+        return this;
+    }
+
+    public CopyCsvBuilder field(long value) {
+        startField();
+        csv.append(value);
+        return this;
+    }
+
+    public CopyCsvBuilder endRow() {
+        csv.append('\n');
+        rowStarted = false;
+        return this;
+    }
+
+    public Reader toReader() {
+        return new StringReader(csv.toString());
+    }
+
+    @Override
+    public String toString() {
+        return csv.toString();
+    }
+
+    private void startField() {
+        if (rowStarted) {
+            csv.append(',');
+        }
+        rowStarted = true;
+    }
+}
@@ -0,0 +1,131 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.ImportResultDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.id.PooledIdAllocator;
+import com.edu.ulab.app.service.UserBookImportService;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Загрузка через COPY FROM STDIN драйвера PostgreSQL.
+ * <p>
+ * Id пользователей и книг выдаются заранее из тех же последовательностей, что и у обычных вставок,
+ * поэтому книги ссылаются на пользователей без чтения сгенерированных ключей.
+ */
+@Slf4j
+@Service
+@Timed(value = "app.service", extraTags = {"backend", "jdbc"})
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "jdbc")
+public class UserBookImportServiceCopy implements UserBookImportService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PooledIdAllocator personIdAllocator;
+    private final PooledIdAllocator bookIdAllocator;
+    private final int batchSize;
+
+    private final String COPY_PERSON_SQL = "COPY PERSON (ID, FULL_NAME, TITLE, AGE) FROM STDIN WITH (FORMAT csv)";
+    private final String COPY_BOOK_SQL = "COPY BOOK (ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID) FROM STDIN WITH (FORMAT csv)";
+
+    public UserBookImportServiceCopy(JdbcTemplate jdbcTemplate,
+                                     PooledIdAllocator personIdAllocator,
+                                     PooledIdAllocator bookIdAllocator,
+                                     @Value("${app.import.batch-size}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.personIdAllocator = personIdAllocator;
+        this.bookIdAllocator = bookIdAllocator;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public ImportResultDto importUsersWithBooks(Iterator<UserWithBooksDto> usersWithBooks) {
+        ImportResultDto result = new ImportResultDto();
+        List<UserWithBooksDto> batch = new ArrayList<>(batchSize);
+        while (usersWithBooks.hasNext()) {
+            batch.add(usersWithBooks.next());
+            if (batch.size() == batchSize) {
+                copyBatch(batch, result);
+            }
+        }
+        copyBatch(batch, result);
+        log.info("Imported {} users with {} books", result.getUsersCount(), result.getBooksCount());
+
+        return result;
+    }
+
+    private void copyBatch(List<UserWithBooksDto> batch, ImportResultDto result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long[] userIds = personIdAllocator.nextIds(batch.size());
+        CopyCsvBuilder personRows = new CopyCsvBuilder();
+        int booksCount = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            UserDto user = batch.get(i).getUser();
+            user.setUserId(userIds[i]);
+            result.getUserIds().add(userIds[i]);
+            personRows.field(userIds[i])
+                    .field(user.getFullName())
+                    .field(user.getTitle())
+                    .field(user.getAge())
+                    .endRow();
+            List<BookDto> books = batch.get(i).getBooks();
+            booksCount += books == null ? 0 : books.size();
+        }
+
+        long[] bookIds = bookIdAllocator.nextIds(booksCount);
+        CopyCsvBuilder bookRows = new CopyCsvBuilder();
+        int bookIndex = 0;
+        for (UserWithBooksDto userWithBooks : batch) {
+            if (userWithBooks.getBooks() == null) {
+                continue;
+            }
+            for (BookDto book : userWithBooks.getBooks()) {
+                book.setId(bookIds[bookIndex++]);
+                book.setUserId(userWithBooks.getUser().getUserId());
+                bookRows.field(book.getId())
+                        .field(book.getTitle())
+                        .field(book.getAuthor())
+                        .field(book.getPageCount())
+                        .field(book.getUserId())
+                        .endRow();
+            }
+        }
+
+        boolean hasBooks = booksCount > 0;
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                copyManager.copyIn(COPY_PERSON_SQL, personRows.toReader());
+                if (hasBooks) {
+                    copyManager.copyIn(COPY_BOOK_SQL, bookRows.toReader());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+        log.info("Copied batch of {} users with {} books", batch.size(), booksCount);
+
+        result.setUsersCount(result.getUsersCount() + batch.size());
+        result.setBooksCount(result.getBooksCount() + booksCount);
+        batch.clear();
+    }
+}
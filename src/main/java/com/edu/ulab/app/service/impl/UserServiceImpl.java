@@ -1,54 +1,95 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.UserServiceException;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.repository.projection.UserBookIdProjection;
+import com.edu.ulab.app.repository.projection.UserBookProjection;
+import com.edu.ulab.app.retry.OptimisticLockRetry;
 import com.edu.ulab.app.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
 import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
+@Timed(value = "app.service", extraTags = {"backend", "jpa"})
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "jpa", matchIfMissing = true)
 @Validated
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final OptimisticLockRetry optimisticLockRetry;
 
     public UserServiceImpl(UserRepository userRepository,
-                           UserMapper userMapper) {
+                           UserMapper userMapper,
+                           OptimisticLockRetry optimisticLockRetry) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
+        this.optimisticLockRetry = optimisticLockRetry;
     }
 
     @Override
     public UserDto createUser(@Valid UserDto userDto) {
         Person user = userMapper.userDtoToPerson(userDto);
-        log.info("Mapped user: {}", user);
+        log.debug("Mapped user: {}", user);
         Person savedUser = userRepository.save(user);
-        log.info("Saved user: {}", savedUser);
+        log.debug("Saved user: {}", savedUser);
         return userMapper.personToUserDto(savedUser);
     }
 
+    @Override
+    @Transactional
+    public List<UserDto> createUsers(List<@Valid UserDto> userDtos) {
+        List<Person> users = userDtos.stream()
+                .map(userMapper::userDtoToPerson)
+                .toList();
+        Iterable<Person> savedUsers = userRepository.saveAll(users);
+        log.info("Saved {} users", users.size());
+
+        List<UserDto> result = new ArrayList<>(users.size());
+        savedUsers.forEach(user -> result.add(userMapper.personToUserDto(user)));
+        return result;
+    }
+
     @Override
     public UserDto updateUser(@Valid UserDto userDto) {
         Person currentUser = userMapper.userDtoToPerson(userDto);
-        log.info("Mapped user: {}", currentUser);
-        Person userByCurrentIdFromDB = userRepository.findById(currentUser.getUserId())
-                .orElseThrow(() -> new UserServiceException("Can't update. User with such id not found"));
-        log.info("Got user by id from DB for update: {}", userByCurrentIdFromDB);
+        log.debug("Mapped user: {}", currentUser);
 
-        currentUser.setUserId(userByCurrentIdFromDB.getUserId());
-        Person updatedUser = userRepository.save(currentUser);
-        log.info("Updated user: {}", updatedUser);
+        return optimisticLockRetry.execute("updateUser", () -> {
+            Person userByCurrentIdFromDB = userRepository.findById(currentUser.getUserId())
+                    .orElseThrow(() -> new UserServiceException("Can't update. User with such id not found"));
+            log.debug("Got user by id from DB for update: {}", userByCurrentIdFromDB);
 
-        return userMapper.personToUserDto(updatedUser);
+            userByCurrentIdFromDB.setFullName(currentUser.getFullName());
+            userByCurrentIdFromDB.setTitle(currentUser.getTitle());
+            userByCurrentIdFromDB.setAge(currentUser.getAge());
+            Person updatedUser = userRepository.save(userByCurrentIdFromDB);
+            log.debug("Updated user: {}", updatedUser);
+
+            return userMapper.personToUserDto(updatedUser);
+        });
     }
 
     @Override
@@ -57,15 +98,105 @@ public class UserServiceImpl implements UserService {
         UserDto foundUserById = userMapper.personToUserDto(userRepository.findById(id)
                 .orElseThrow(() -> new UserServiceException("User not found"))
         );
-        log.info("Got user by id from DB: {}", foundUserById);
+        log.debug("Got user by id from DB: {}", foundUserById);
 
         return foundUserById;
     }
 
     @Override
-    public void deleteUserById(Long id) {
+    public List<UserDto> getUsersByIds(Collection<Long> ids) {
+        List<UserDto> foundUsers = new ArrayList<>(ids.size());
+        userRepository.findAllById(ids).forEach(user -> foundUsers.add(userMapper.personToUserDto(user)));
+        log.info("Got {} users by {} ids from DB", foundUsers.size(), ids.size());
+
+        return foundUsers;
+    }
+
+    @Override
+    public UserBookIdsDto getUserWithBookIdsById(Long id) {
+        log.info("Got user id #{} to look for with books", id);
+        List<UserBookIdProjection> rows = userRepository.findUserWithBookIdsById(id);
+        if (rows.isEmpty()) {
+            throw new UserServiceException("User not found");
+        }
+
+        UserBookIdProjection userRow = rows.get(0);
+        UserDto foundUser = new UserDto();
+        foundUser.setUserId(userRow.getUserId());
+        foundUser.setFullName(userRow.getFullName());
+        foundUser.setTitle(userRow.getTitle());
+        foundUser.setAge(userRow.getAge());
+
+        List<Long> bookIds = rows.stream()
+                .map(UserBookIdProjection::getBookId)
+                .filter(Objects::nonNull)
+                .toList();
+        log.info("Got user by id from DB: {} with {} books", foundUser, bookIds.size());
+
+        return new UserBookIdsDto(foundUser, bookIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUserWithBooks(Consumer<UserWithBooksDto> userConsumer) {
+        long usersCount = 0;
+        try (Stream<UserBookProjection> rows = userRepository.streamAllUsersWithBooks()) {
+            UserWithBooksDto current = null;
+            Iterator<UserBookProjection> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                UserBookProjection row = iterator.next();
+                if (current == null || !current.getUser().getUserId().equals(row.getUserId())) {
+                    if (current != null) {
+                        userConsumer.accept(current);
+                        usersCount++;
+                    }
+                    current = new UserWithBooksDto(toUserDto(row), new ArrayList<>());
+                }
+                if (row.getBookId() != null) {
+                    current.getBooks().add(toBookDto(row));
+                }
+            }
+            if (current != null) {
+                userConsumer.accept(current);
+                usersCount++;
+            }
+        }
+        log.info("Passed {} users with books", usersCount);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUserId(LongConsumer userIdConsumer) {
+        try (Stream<Long> userIds = userRepository.streamAllUserIds()) {
+            userIds.forEach(userIdConsumer::accept);
+        }
+    }
+
+    @Override
+    @Transactional
+    public int deleteUserById(Long id) {
         log.info("Got user id #{} for delete", id);
-        userRepository.deleteById(id);
-        log.info("Deleted user by its id #{}", id);
+        int deletedUsersCount = userRepository.deleteUserById(id);
+        log.info("Deleted {} users by id #{}", deletedUsersCount, id);
+        return deletedUsersCount;
+    }
+
+    private UserDto toUserDto(UserBookProjection row) {
+        UserDto user = new UserDto();
+        user.setUserId(row.getUserId());
+        user.setFullName(row.getFullName());
+        user.setTitle(row.getTitle());
+        user.setAge(row.getAge());
+        return user;
+    }
+
+    private BookDto toBookDto(UserBookProjection row) {
+        BookDto book = new BookDto();
+        book.setId(row.getBookId());
+        book.setUserId(row.getUserId());
+        book.setTitle(row.getBookTitle());
+        book.setAuthor(row.getBookAuthor());
+        book.setPageCount(row.getBookPageCount());
+        return book;
     }
 }
@@ -0,0 +1,116 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.UserServiceException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.storage.Storage;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+@Slf4j
+@Service
+@Timed(value = "app.service", extraTags = {"backend", "memory"})
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "memory")
+public class UserServiceImplStorage implements UserService {
+
+    private final Storage storage;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+
+    public UserServiceImplStorage(Storage storage, UserMapper userMapper, BookMapper bookMapper) {
+        this.storage = storage;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+    }
+
+    @Override
+    public UserDto createUser(UserDto userDto) {
+        Person user = userMapper.userDtoToPerson(userDto);
+        user.setUserId(null);
+        Person savedUser = storage.savePerson(user);
+        log.debug("Saved user: {}", savedUser);
+        return userMapper.personToUserDto(savedUser);
+    }
+
+    @Override
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        return userDtos.stream()
+                .map(this::createUser)
+                .toList();
+    }
+
+    @Override
+    public UserDto updateUser(UserDto userDto) {
+        Person currentUser = userMapper.userDtoToPerson(userDto);
+        log.debug("Mapped user: {}", currentUser);
+        if (currentUser.getUserId() == null || storage.findPersonById(currentUser.getUserId()).isEmpty()) {
+            throw new UserServiceException("Can't update. User with such id not found");
+        }
+
+        Person updatedUser = storage.savePerson(currentUser);
+        log.debug("Updated user: {}", updatedUser);
+        return userMapper.personToUserDto(updatedUser);
+    }
+
+    @Override
+    public UserDto getUserById(Long id) {
+        UserDto foundUser = storage.findPersonById(id)
+                .map(userMapper::personToUserDto)
+                .orElseThrow(() -> new UserServiceException("User not found"));
+        log.debug("Found user by id #{}: {}", id, foundUser);
+
+        return foundUser;
+    }
+
+    @Override
+    public List<UserDto> getUsersByIds(Collection<Long> ids) {
+        return ids.stream()
+                .map(storage::findPersonById)
+                .flatMap(Optional::stream)
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    @Override
+    public UserBookIdsDto getUserWithBookIdsById(Long id) {
+        UserDto foundUser = getUserById(id);
+        return new UserBookIdsDto(foundUser, storage.findBookIdsByUserId(id));
+    }
+
+    @Override
+    public void forEachUserWithBooks(Consumer<UserWithBooksDto> userConsumer) {
+        storage.findAllPersons().forEach(person -> {
+            List<BookDto> books = storage.findBooksByUserId(person.getUserId())
+                    .stream()
+                    .map(bookMapper::bookToBookDto)
+                    .toList();
+            userConsumer.accept(new UserWithBooksDto(userMapper.personToUserDto(person), books));
+        });
+    }
+
+    @Override
+    public void forEachUserId(LongConsumer userIdConsumer) {
+        storage.findAllPersons().forEach(person -> userIdConsumer.accept(person.getUserId()));
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        boolean deleted = storage.deletePersonById(id);
+        log.info("User with id #{} deleted: {}", id, deleted);
+        return deleted ? 1 : 0;
+    }
+}
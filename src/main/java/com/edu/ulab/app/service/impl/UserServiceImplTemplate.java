@@ -1,73 +1,147 @@
 package com.edu.ulab.app.service.impl;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.BookServiceException;
 import com.edu.ulab.app.exception.UserServiceException;
+import com.edu.ulab.app.id.PooledIdAllocator;
 import com.edu.ulab.app.mapper.BookRowMapper;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.mapper.UserRowMapper;
+import com.edu.ulab.app.retry.OptimisticLockRetry;
 import com.edu.ulab.app.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.PreparedStatement;
-import java.util.Objects;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 @Slf4j
 @Service
+@Timed(value = "app.service", extraTags = {"backend", "jdbc"})
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "jdbc")
 public class UserServiceImplTemplate implements UserService {
 
     private final JdbcTemplate jdbcTemplate;
     private final UserMapper userMapper;
+    private final PooledIdAllocator personIdAllocator;
+    private final OptimisticLockRetry optimisticLockRetry;
 
-    private final String INSERT_SQL = "INSERT INTO PERSON(FULL_NAME, TITLE, AGE) VALUES (?,?,?)";
-    private final String UPDATE_SQL = "UPDATE PERSON SET FULL_NAME = ?, TITLE = ?, AGE = ? WHERE ID = ?";
+    private final String INSERT_SQL = "INSERT INTO PERSON(ID, FULL_NAME, TITLE, AGE) VALUES (?,?,?,?)";
+    private final String UPDATE_SQL =
+            "UPDATE PERSON SET FULL_NAME = ?, TITLE = ?, AGE = ?, VERSION = VERSION + 1 WHERE ID = ? AND VERSION = ?";
     private final String SELECT_USER_BY_ID_SQL = "SELECT * FROM PERSON WHERE ID = ?";
+    private final String SELECT_USERS_BY_IDS_SQL = "SELECT * FROM PERSON WHERE ID = ANY(?)";
+    private final String SELECT_USER_WITH_BOOK_IDS_BY_ID_SQL =
+            "SELECT P.ID, P.FULL_NAME, P.TITLE, P.AGE, P.VERSION, B.ID AS BOOK_ID " +
+            "FROM PERSON P LEFT JOIN BOOK B ON B.USER_ID = P.ID " +
+            "WHERE P.ID = ? ORDER BY B.ID";
+    private final String SELECT_ALL_USERS_WITH_BOOKS_SQL =
+            "SELECT P.ID, P.FULL_NAME, P.TITLE, P.AGE, P.VERSION, " +
+            "B.ID AS BOOK_ID, B.TITLE AS BOOK_TITLE, B.AUTHOR AS BOOK_AUTHOR, B.PAGE_COUNT AS BOOK_PAGE_COUNT " +
+            "FROM PERSON P LEFT JOIN BOOK B ON B.USER_ID = P.ID " +
+            "ORDER BY P.ID, B.ID";
+    private final String SELECT_ALL_USER_IDS_SQL = "SELECT ID FROM PERSON";
     private final String DELETE_SQL = "DELETE FROM PERSON WHERE ID = ?";
 
-    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate, UserMapper userMapper) {
+    /**
+     * Сколько строк драйвер читает с курсора за раз при выгрузке всех пользователей.
+     */
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int USER_IDS_FETCH_SIZE = 10000;
+
+    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate,
+                                   UserMapper userMapper,
+                                   PooledIdAllocator personIdAllocator,
+                                   OptimisticLockRetry optimisticLockRetry) {
         this.jdbcTemplate = jdbcTemplate;
         this.userMapper = userMapper;
+        this.personIdAllocator = personIdAllocator;
+        this.optimisticLockRetry = optimisticLockRetry;
     }
 
     @Override
     public UserDto createUser(UserDto userDto) {
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                    ps.setString(1, userDto.getFullName());
-                    ps.setString(2, userDto.getTitle());
-                    ps.setLong(3, userDto.getAge());
-                    return ps;
-                }, keyHolder);
+        long userId = personIdAllocator.nextId();
+        jdbcTemplate.update(INSERT_SQL, userId, userDto.getFullName(), userDto.getTitle(), userDto.getAge());
 
-        userDto.setUserId(Objects.requireNonNull(keyHolder.getKey()).longValue());
-        log.info("Created user: {}", userDto);
+        userDto.setUserId(userId);
+        log.debug("Created user: {}", userDto);
 
         return userDto;
     }
 
+    @Override
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        if (userDtos.isEmpty()) {
+            return userDtos;
+        }
+        long[] userIds = personIdAllocator.nextIds(userDtos.size());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                UserDto userDto = userDtos.get(i);
+                ps.setLong(1, userIds[i]);
+                ps.setString(2, userDto.getFullName());
+                ps.setString(3, userDto.getTitle());
+                ps.setInt(4, userDto.getAge());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return userDtos.size();
+            }
+        });
+
+        for (int i = 0; i < userDtos.size(); i++) {
+            userDtos.get(i).setUserId(userIds[i]);
+        }
+        log.info("Created {} users", userDtos.size());
+
+        return userDtos;
+    }
+
     @Override
     public UserDto updateUser(UserDto userDto) {
         Person currentUser = userMapper.userDtoToPerson(userDto);
-        log.info("Mapped user: {}", currentUser);
-        UserDto foundUserFromDB = getUserById(currentUser.getUserId());
+        log.debug("Mapped user: {}", currentUser);
 
-        jdbcTemplate.update(UPDATE_SQL, currentUser.getFullName(),
-                currentUser.getTitle(),
-                currentUser.getAge(),
-                foundUserFromDB.getUserId());
+        return optimisticLockRetry.execute("updateUser", () -> {
+            Person foundUserFromDB = jdbcTemplate.query(SELECT_USER_BY_ID_SQL, new UserRowMapper(), currentUser.getUserId())
+                    .stream()
+                    .findFirst()
+                    .orElseThrow(() -> new UserServiceException("User with id #" + currentUser.getUserId() + " not found"));
 
-        userDto.setUserId(foundUserFromDB.getUserId());
-        log.info("Updated user: {}", userDto);
+            int updatedUsersCount = jdbcTemplate.update(UPDATE_SQL, currentUser.getFullName(),
+                    currentUser.getTitle(),
+                    currentUser.getAge(),
+                    foundUserFromDB.getUserId(),
+                    foundUserFromDB.getVersion());
+            if (updatedUsersCount == 0) {
+                throw new OptimisticLockingFailureException(
+                        "User with id #" + foundUserFromDB.getUserId() + " was changed concurrently");
+            }
 
-        return userDto;
+            userDto.setUserId(foundUserFromDB.getUserId());
+            log.debug("Updated user: {}", userDto);
+
+            return userDto;
+        });
     }
 
     @Override
@@ -77,14 +151,106 @@ public class UserServiceImplTemplate implements UserService {
                 .findFirst()
                 .map(user -> userMapper.personToUserDto(user))
                 .orElseThrow(() -> new UserServiceException("User with id #" + id + " not found"));
-        log.info("Found user by id #{}: {}", id, foundUser);
+        log.debug("Found user by id #{}: {}", id, foundUser);
 
         return foundUser;
     }
 
     @Override
-    public void deleteUserById(Long id) {
+    public List<UserDto> getUsersByIds(Collection<Long> ids) {
+        UserRowMapper userRowMapper = new UserRowMapper();
+        List<UserDto> foundUsers = jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(SELECT_USERS_BY_IDS_SQL);
+                    ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+                    return ps;
+                },
+                (resultSet, rowNum) -> userMapper.personToUserDto(userRowMapper.mapRow(resultSet, rowNum)));
+        log.info("Found {} users by {} ids", foundUsers.size(), ids.size());
+
+        return foundUsers;
+    }
+
+    @Override
+    public UserBookIdsDto getUserWithBookIdsById(Long id) {
+        UserRowMapper userRowMapper = new UserRowMapper();
+        UserDto[] foundUser = new UserDto[1];
+        List<Long> bookIds = new ArrayList<>();
+        jdbcTemplate.query(SELECT_USER_WITH_BOOK_IDS_BY_ID_SQL, resultSet -> {
+            if (foundUser[0] == null) {
+                foundUser[0] = userMapper.personToUserDto(userRowMapper.mapRow(resultSet, resultSet.getRow()));
+            }
+            long bookId = resultSet.getLong("book_id");
+            if (!resultSet.wasNull()) {
+                bookIds.add(bookId);
+            }
+        }, id);
+
+        if (foundUser[0] == null) {
+            throw new UserServiceException("User with id #" + id + " not found");
+        }
+        UserBookIdsDto userWithBookIds = new UserBookIdsDto(foundUser[0], bookIds);
+        log.debug("Found user by id #{}: {} with {} books", id, foundUser[0], bookIds.size());
+
+        return userWithBookIds;
+    }
+
+    /**
+     * Курсор PostgreSQL работает только вне autocommit, поэтому обход идёт в транзакции только для чтения.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUserWithBooks(Consumer<UserWithBooksDto> userConsumer) {
+        UserRowMapper userRowMapper = new UserRowMapper();
+        UserWithBooksDto[] current = new UserWithBooksDto[1];
+        long[] usersCount = new long[1];
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(SELECT_ALL_USERS_WITH_BOOKS_SQL);
+                    ps.setFetchSize(EXPORT_FETCH_SIZE);
+                    return ps;
+                },
+                (RowCallbackHandler) resultSet -> {
+                    long userId = resultSet.getLong("id");
+                    if (current[0] == null || current[0].getUser().getUserId() != userId) {
+                        if (current[0] != null) {
+                            userConsumer.accept(current[0]);
+                            usersCount[0]++;
+                        }
+                        UserDto user = userMapper.personToUserDto(userRowMapper.mapRow(resultSet, resultSet.getRow()));
+                        current[0] = new UserWithBooksDto(user, new ArrayList<>());
+                    }
+                    long bookId = resultSet.getLong("book_id");
+                    if (!resultSet.wasNull()) {
+                        BookDto book = new BookDto();
+                        book.setId(bookId);
+                        book.setUserId(userId);
+                        book.setTitle(resultSet.getString("book_title"));
+                        book.setAuthor(resultSet.getString("book_author"));
+                        book.setPageCount(resultSet.getLong("book_page_count"));
+                        current[0].getBooks().add(book);
+                    }
+                });
+        if (current[0] != null) {
+            userConsumer.accept(current[0]);
+            usersCount[0]++;
+        }
+        log.info("Passed {} users with books", usersCount[0]);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUserId(LongConsumer userIdConsumer) {
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(SELECT_ALL_USER_IDS_SQL);
+                    ps.setFetchSize(USER_IDS_FETCH_SIZE);
+                    return ps;
+                },
+                (RowCallbackHandler) resultSet -> userIdConsumer.accept(resultSet.getLong(1)));
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
         int deletedUsersCount = jdbcTemplate.update(DELETE_SQL, id);
         log.info("How many users deleted: {}", deletedUsersCount);
+        return deletedUsersCount;
     }
 }
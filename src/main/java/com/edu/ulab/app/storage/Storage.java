@@ -1,11 +1,177 @@
 package com.edu.ulab.app.storage;
 
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Потокобезопасное хранилище пользователей и книг в памяти.
+ * <p>
+ * Помимо основных таблиц держит вторичный индекс userId -> id книг,
+ * поэтому выборка книг пользователя не требует просмотра всех книг.
+ * <p>
+ * Хранит и отдаёт копии сущностей: изменить состояние хранилища можно только через save.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "memory")
 public class Storage {
-    //todo создать хранилище в котором будут содержаться данные
-    // сделать абстракции через которые можно будет производить операции с хранилищем
-    // продумать логику поиска и сохранения
-    // продумать возможные ошибки
-    // учесть, что при сохранеии юзера или книги, должен генерироваться идентификатор
-    // продумать что у узера может быть много книг и нужно создать эту связь
-    // так же учесть, что методы хранилища принимают друго тип данных - учесть это в абстракции
+
+    private final AtomicLong personIdSequence = new AtomicLong();
+    private final AtomicLong bookIdSequence = new AtomicLong();
+
+    private final ConcurrentMap<Long, Person> persons = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Book> books = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, NavigableSet<Long>> bookIdsByUserId = new ConcurrentHashMap<>();
+
+    public Person savePerson(Person person) {
+        if (person.getUserId() == null) {
+            person.setUserId(personIdSequence.incrementAndGet());
+        } else {
+            personIdSequence.accumulateAndGet(person.getUserId(), Math::max);
+        }
+        persons.put(person.getUserId(), copyOf(person));
+        return person;
+    }
+
+    public Optional<Person> findPersonById(long id) {
+        return Optional.ofNullable(persons.get(id)).map(Storage::copyOf);
+    }
+
+    /**
+     * Все пользователи без копирования коллекции целиком: каждый копируется при обходе,
+     * изменения, сделанные во время обхода, могут быть видны.
+     */
+    public Stream<Person> findAllPersons() {
+        return persons.values().stream().map(Storage::copyOf);
+    }
+
+    public boolean deletePersonById(long id) {
+        return persons.remove(id) != null;
+    }
+
+    public Book saveBook(Book book) {
+        if (book.getId() == null) {
+            book.setId(bookIdSequence.incrementAndGet());
+        } else {
+            bookIdSequence.accumulateAndGet(book.getId(), Math::max);
+        }
+        Book previous = books.put(book.getId(), copyOf(book));
+        if (previous != null && previous.getUserId() != null
+                && !previous.getUserId().equals(book.getUserId())) {
+            unindexBook(previous.getUserId(), previous.getId());
+        }
+        if (book.getUserId() != null) {
+            bookIdsByUserId.compute(book.getUserId(), (userId, bookIds) -> {
+                NavigableSet<Long> userBookIds = bookIds == null ? new ConcurrentSkipListSet<>() : bookIds;
+                userBookIds.add(book.getId());
+                return userBookIds;
+            });
+        }
+        return book;
+    }
+
+    public Optional<Book> findBookById(long id) {
+        return Optional.ofNullable(books.get(id)).map(Storage::copyOf);
+    }
+
+    /**
+     * Книги пользователя в порядке возрастания id.
+     */
+    public List<Book> findBooksByUserId(long userId) {
+        NavigableSet<Long> bookIds = bookIdsByUserId.get(userId);
+        if (bookIds == null) {
+            return Collections.emptyList();
+        }
+        return bookIds.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .map(Storage::copyOf)
+                .toList();
+    }
+
+    public List<Long> findBookIdsByUserId(long userId) {
+        NavigableSet<Long> bookIds = bookIdsByUserId.get(userId);
+        return bookIds == null ? Collections.emptyList() : List.copyOf(bookIds);
+    }
+
+    /**
+     * Не больше limit книг пользователя с id больше afterBookId в порядке возрастания id.
+     */
+    public List<Book> findBooksPageByUserId(long userId, long afterBookId, int limit) {
+        NavigableSet<Long> bookIds = bookIdsByUserId.get(userId);
+        if (bookIds == null) {
+            return Collections.emptyList();
+        }
+        return bookIds.tailSet(afterBookId, false).stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .limit(limit)
+                .map(Storage::copyOf)
+                .toList();
+    }
+
+    public boolean deleteBookById(long id) {
+        Book removed = books.remove(id);
+        if (removed == null) {
+            return false;
+        }
+        if (removed.getUserId() != null) {
+            unindexBook(removed.getUserId(), id);
+        }
+        return true;
+    }
+
+    public int deleteBooksByUserId(long userId) {
+        NavigableSet<Long> bookIds = bookIdsByUserId.remove(userId);
+        if (bookIds == null) {
+            return 0;
+        }
+        int deletedBooksCount = 0;
+        for (Long bookId : bookIds) {
+            if (books.remove(bookId) != null) {
+                deletedBooksCount++;
+            }
+        }
+        return deletedBooksCount;
+    }
+
+    private void unindexBook(long userId, long bookId) {
+        bookIdsByUserId.computeIfPresent(userId, (key, bookIds) -> {
+            bookIds.remove(bookId);
+            return bookIds.isEmpty() ? null : bookIds;
+        });
+    }
+
+    private static Person copyOf(Person person) {
+        Person copy = new Person();
+        copy.setUserId(person.getUserId());
+        copy.setFullName(person.getFullName());
+        copy.setTitle(person.getTitle());
+        copy.setAge(person.getAge());
+        copy.setVersion(person.getVersion());
+        return copy;
+    }
+
+    private static Book copyOf(Book book) {
+        Book copy = new Book();
+        copy.setId(book.getId());
+        copy.setUserId(book.getUserId());
+        copy.setTitle(book.getTitle());
+        copy.setAuthor(book.getAuthor());
+        copy.setPageCount(book.getPageCount());
+        copy.setVersion(book.getVersion());
+        return copy;
+    }
 }
@@ -1,24 +1,55 @@
 package com.edu.ulab.app.web;
 
+import com.edu.ulab.app.config.AsyncConfig;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
 import com.edu.ulab.app.facade.UserDataFacade;
 import com.edu.ulab.app.web.constant.WebConstant;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.BulkUserBookResponse;
+import com.edu.ulab.app.web.response.ETaggedResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserDeleteResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
 import static com.edu.ulab.app.web.constant.WebConstant.RQID;
@@ -31,9 +62,21 @@ import static com.edu.ulab.app.web.constant.WebConstant.RQID;
 @Tag(name = "Users", description = "User interaction")
 public class UserController {
     private final UserDataFacade userDataFacade;
+    private final ObjectMapper objectMapper;
+    private final int bulkBatchSize;
+    private final Executor userFacadeExecutor;
+    private final Duration asyncTimeout;
 
-    public UserController(UserDataFacade userDataFacade) {
+    public UserController(UserDataFacade userDataFacade,
+                          ObjectMapper objectMapper,
+                          @Value("${app.bulk.batch-size}") int bulkBatchSize,
+                          @Qualifier(AsyncConfig.USER_FACADE_EXECUTOR) Executor userFacadeExecutor,
+                          @Value("${app.async.timeout}") Duration asyncTimeout) {
         this.userDataFacade = userDataFacade;
+        this.objectMapper = objectMapper;
+        this.bulkBatchSize = bulkBatchSize;
+        this.userFacadeExecutor = userFacadeExecutor;
+        this.asyncTimeout = asyncTimeout;
     }
 
     @PostMapping(value = "/create")
@@ -42,11 +85,75 @@ public class UserController {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
-    public UserBookResponse createUserWithBooks(@RequestBody UserBookRequest request,
-                                                @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
-        UserBookResponse response = userDataFacade.createUserWithBooks(request);
-        log.info("Response with created user and his books: {}", response);
-        return response;
+    public CompletableFuture<UserBookResponse> createUserWithBooks(@RequestBody UserBookRequest request,
+                                                                   @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
+        return async(() -> {
+            UserBookResponse response = userDataFacade.createUserWithBooks(request);
+            log.debug("Response with created user and his books: {}", response);
+            return response;
+        });
+    }
+
+    /**
+     * Читает NDJSON или JSON-массив запросов по одной записи и создаёт пользователей пачками по bulkBatchSize.
+     * Результат по каждой записи пишется в ответ строкой NDJSON сразу после обработки её пачки,
+     * поэтому память не зависит от размера загрузки.
+     */
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Create users and their books from NDJSON stream or JSON array.",
+            responses = {
+                    @ApiResponse(description = "Result per record, one JSON object per line",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = BulkUserBookResponse.class)))})
+    public void createUsersWithBooksInBulk(HttpServletRequest request,
+                                           HttpServletResponse response,
+                                           @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId)
+            throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        ObjectWriter resultWriter = objectMapper.writerFor(BulkUserBookResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        List<UserBookRequest> batch = new ArrayList<>(bulkBatchSize);
+        List<Long> batchIndexes = new ArrayList<>(bulkBatchSize);
+        long index = 0;
+
+        try (MappingIterator<UserBookRequest> requests = objectMapper.readerFor(UserBookRequest.class)
+                .readValues(request.getInputStream());
+             JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            while (true) {
+                UserBookRequest userBookRequest;
+                try {
+                    if (!requests.hasNextValue()) {
+                        break;
+                    }
+                    userBookRequest = requests.nextValue();
+                } catch (JsonProcessingException e) {
+                    log.error("Malformed bulk record #{}: {}", index, e.getOriginalMessage());
+                    createBatch(batch, batchIndexes, resultWriter, generator);
+                    writeLine(resultWriter, generator, BulkUserBookResponse.builder()
+                            .index(index)
+                            .errorMessage("Malformed record: " + e.getOriginalMessage())
+                            .build());
+                    return;
+                }
+
+                if (userBookRequest == null || userBookRequest.getUserRequest() == null) {
+                    writeLine(resultWriter, generator, BulkUserBookResponse.builder()
+                            .index(index++)
+                            .errorMessage("User request is missing")
+                            .build());
+                    continue;
+                }
+                batch.add(userBookRequest);
+                batchIndexes.add(index++);
+                if (batch.size() == bulkBatchSize) {
+                    createBatch(batch, batchIndexes, resultWriter, generator);
+                }
+            }
+            createBatch(batch, batchIndexes, resultWriter, generator);
+            log.info("Bulk request processed: {} records", index);
+        }
     }
 
     @PutMapping(value = "/update")
@@ -55,32 +162,175 @@ public class UserController {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
-    public UserBookResponse updateUserWithBooks(@RequestBody UserBookRequest request) {
-        UserBookResponse response = userDataFacade.updateUserWithBooks(request);
-        log.info("Response with updated user and his books: {}", response);
-        return response;
+    public CompletableFuture<UserBookResponse> updateUserWithBooks(@RequestBody UserBookRequest request) {
+        return async(() -> {
+            UserBookResponse response = userDataFacade.updateUserWithBooks(request);
+            log.debug("Response with updated user and his books: {}", response);
+            return response;
+        });
     }
 
+    /**
+     * Отдаёт ETag пользователя; при совпадении с If-None-Match отвечает 304 без тела.
+     * ETag и тело берутся из одной записи кэша, поэтому не расходятся при одновременном изменении.
+     */
     @GetMapping(value = "/get/{userId}")
     @Operation(summary = "Get user and his books by id.",
             responses = {
                     @ApiResponse(description = "User and his books",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                                    schema = @Schema(implementation = UserBookResponse.class)))})
-    public UserBookResponse updateUserWithBooks(@PathVariable("userId") @NotNull Long userId) {
-        UserBookResponse response = userDataFacade.getUserWithBooks(userId);
-        log.info("Response with user and his books: {}", response);
+                                    schema = @Schema(implementation = UserBookResponse.class))),
+                    @ApiResponse(responseCode = "304", description = "User and his books not modified")})
+    public CompletableFuture<ResponseEntity<UserBookResponse>> updateUserWithBooks(
+            @PathVariable("userId") @NotNull Long userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            ETaggedResponse<UserBookResponse> response = userDataFacade.getETaggedUserWithBooks(userId);
+            String eTag = response.getETag();
+            if (eTagMatches(ifNoneMatch, eTag)) {
+                log.debug("User #{} not modified", userId);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+            log.debug("Response with user and his books: {}", response.getBody());
+            return ResponseEntity.ok().eTag(eTag).body(response.getBody());
+        });
+    }
+
+    @GetMapping(value = "/get-many")
+    @Operation(summary = "Get many users and their books by ids in one request.",
+            responses = {
+                    @ApiResponse(description = "Found users and their books, in request order",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    array = @ArraySchema(schema = @Schema(implementation = UserBookResponse.class))))})
+    public List<UserBookResponse> getUsersWithBooks(@RequestParam("userIds") @NotEmpty List<Long> userIds) {
+        List<UserBookResponse> response = userDataFacade.getUsersWithBooks(userIds);
+        log.info("Response with {} users and their books", response.size());
         return response;
     }
 
+    @GetMapping(value = "/get/{userId}/books")
+    @Operation(summary = "Get page of user's books ordered by id, starting after the given book id.",
+            responses = {
+                    @ApiResponse(description = "User's books",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    array = @ArraySchema(schema = @Schema(implementation = BookDto.class))))})
+    public StreamingResponseBody getUserBooks(@PathVariable("userId") @NotNull Long userId,
+                                              @RequestParam(value = "afterId", required = false) Long afterBookId,
+                                              @RequestParam(value = "size", required = false) Integer pageSize) {
+        ObjectWriter bookWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                userDataFacade.forEachUserBook(userId, afterBookId, pageSize, book -> {
+                    try {
+                        bookWriter.writeValue(generator, book);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    private void createBatch(List<UserBookRequest> batch,
+                             List<Long> batchIndexes,
+                             ObjectWriter resultWriter,
+                             JsonGenerator generator) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<BulkUserBookResponse> results = new ArrayList<>(batch.size());
+        try {
+            List<UserBookResponse> createdUsers = userDataFacade.createUsersWithBooks(batch);
+            for (int i = 0; i < createdUsers.size(); i++) {
+                results.add(BulkUserBookResponse.builder()
+                        .index(batchIndexes.get(i))
+                        .userId(createdUsers.get(i).getUserId())
+                        .booksIdList(createdUsers.get(i).getBooksIdList())
+                        .build());
+            }
+        } catch (RuntimeException e) {
+            log.error("Bulk batch of records #{}..#{} failed: {}",
+                    batchIndexes.get(0), batchIndexes.get(batchIndexes.size() - 1), e.getMessage());
+            for (Long batchIndex : batchIndexes) {
+                results.add(BulkUserBookResponse.builder()
+                        .index(batchIndex)
+                        .errorMessage(e.getMessage())
+                        .build());
+            }
+        }
+        batch.clear();
+        batchIndexes.clear();
+
+        for (BulkUserBookResponse result : results) {
+            writeLine(resultWriter, generator, result);
+        }
+        generator.flush();
+    }
+
+    private void writeLine(ObjectWriter writer, JsonGenerator generator, Object value) throws IOException {
+        writer.writeValue(generator, value);
+        generator.writeRaw('\n');
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all users with their books, one JSON object per line.",
+            responses = {
+                    @ApiResponse(description = "Users with books",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = UserWithBooksDto.class)))})
+    public StreamingResponseBody exportUsersWithBooks() {
+        ObjectWriter userWriter = objectMapper.writerFor(UserWithBooksDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                userDataFacade.exportUsersWithBooks(userWithBooks -> {
+                    try {
+                        writeLine(userWriter, generator, userWithBooks);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
+
     @DeleteMapping(value = "/delete/{userId}")
     @Operation(summary = "Delete user and his books.",
             responses = {
-                    @ApiResponse(description = "Deleted user count",
+                    @ApiResponse(description = "Deleted users and books count",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                                    schema = @Schema(implementation = UserBookResponse.class)))})
-    public void deleteUserWithBooks(@PathVariable("userId") @NotBlank Long userId) {
+                                    schema = @Schema(implementation = UserDeleteResponse.class)))})
+    public CompletableFuture<UserDeleteResponse> deleteUserWithBooks(@PathVariable("userId") @NotBlank Long userId) {
         log.info("Delete user and his books:  userId {}", userId);
-        userDataFacade.deleteUserWithBooks(userId);
+        return async(() -> {
+            UserDeleteResponse response = userDataFacade.deleteUserWithBooks(userId);
+            log.info("Response with deleted users and books count: {}", response);
+            return response;
+        });
+    }
+
+    /**
+     * Выполняет работу фасада в пуле userFacadeExecutor, освобождая поток Tomcat.
+     * Если пул переполнен, исключение возникает сразу; по истечении asyncTimeout ответ завершается
+     * с TimeoutException, а начатая работа с базой доходит до конца в пуле.
+     */
+    private <T> CompletableFuture<T> async(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, userFacadeExecutor)
+                .orTimeout(asyncTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean eTagMatches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String requestedETag = candidate.trim();
+            if (requestedETag.equals("*") || requestedETag.equals(eTag) || requestedETag.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
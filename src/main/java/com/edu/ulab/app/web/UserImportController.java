@@ -0,0 +1,63 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.facade.UserImportFacade;
+import com.edu.ulab.app.web.constant.WebConstant;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserImportResponse;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.Pattern;
+import java.io.IOException;
+
+import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
+import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+
+@Slf4j
+@Validated
+@RestController
+@RequestMapping(value = WebConstant.VERSION_URL + "/user",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "jdbc")
+@Tag(name = "Users", description = "User interaction")
+public class UserImportController {
+    private final UserImportFacade userImportFacade;
+    private final ObjectMapper objectMapper;
+
+    public UserImportController(UserImportFacade userImportFacade, ObjectMapper objectMapper) {
+        this.userImportFacade = userImportFacade;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(value = "/import",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Load users and their books from NDJSON stream or JSON array with PostgreSQL COPY, all or nothing.",
+            responses = {
+                    @ApiResponse(description = "Loaded rows count",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserImportResponse.class)))})
+    public UserImportResponse importUsersWithBooks(HttpServletRequest request,
+                                                   @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId)
+            throws IOException {
+        try (MappingIterator<UserBookRequest> requests = objectMapper.readerFor(UserBookRequest.class)
+                .readValues(request.getInputStream())) {
+            UserImportResponse response = userImportFacade.importUsersWithBooks(requests);
+            log.info("Response with imported users and books: {}", response);
+            return response;
+        }
+    }
+}
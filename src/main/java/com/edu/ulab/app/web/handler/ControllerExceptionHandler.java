@@ -1,16 +1,24 @@
 package com.edu.ulab.app.web.handler;
 
+import com.edu.ulab.app.exception.BadRequestException;
 import com.edu.ulab.app.exception.BookServiceException;
+import com.edu.ulab.app.exception.LoadTimeoutException;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.UserServiceException;
 import com.edu.ulab.app.web.response.BaseWebResponse;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
 
 @Slf4j
 @ControllerAdvice
@@ -23,6 +31,13 @@ public class ControllerExceptionHandler {
                 .body(new BaseWebResponse(createErrorMessage(exc)));
     }
 
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<BaseWebResponse> handleBadRequestException(@NonNull final BadRequestException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
     @ExceptionHandler(UserServiceException.class)
     public ResponseEntity<BaseWebResponse> handleUserServiceExceptionException(@NonNull final UserServiceException exc) {
         log.error(exc.getMessage());
@@ -37,6 +52,45 @@ public class ControllerExceptionHandler {
                 .body(new BaseWebResponse(createErrorMessage(exc)));
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<BaseWebResponse> handleOptimisticLockingFailureException(
+            @NonNull final OptimisticLockingFailureException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<BaseWebResponse> handleDataIntegrityViolationException(
+            @NonNull final DataIntegrityViolationException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new BaseWebResponse("Data conflicts with existing records"));
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<BaseWebResponse> handleRejectedExecutionException(
+            @NonNull final RejectedExecutionException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new BaseWebResponse("Server is busy, try again later"));
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<BaseWebResponse> handleTimeoutException(@NonNull final TimeoutException exc) {
+        log.warn("Request timed out waiting for user facade");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new BaseWebResponse("Request timed out"));
+    }
+
+    @ExceptionHandler(LoadTimeoutException.class)
+    public ResponseEntity<BaseWebResponse> handleLoadTimeoutException(@NonNull final LoadTimeoutException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new BaseWebResponse("Request timed out"));
+    }
+
     private String createErrorMessage(Exception exception) {
         final String message = exception.getMessage();
         log.error(ExceptionHandlerUtils.buildErrorMessage(exception));
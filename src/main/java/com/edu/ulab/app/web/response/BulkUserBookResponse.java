@@ -0,0 +1,18 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Результат обработки одной записи массовой загрузки: index - номер записи во входном потоке.
+ */
+@Data
+@Builder
+public class BulkUserBookResponse {
+    private long index;
+    private Long userId;
+    private List<Long> booksIdList;
+    private String errorMessage;
+}
@@ -0,0 +1,14 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Тело ответа вместе с его ETag, взятые из одной записи кэша.
+ */
+@Data
+@Builder
+public class ETaggedResponse<T> {
+    private String eTag;
+    private T body;
+}
@@ -0,0 +1,12 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class UserImportResponse {
+    private long usersCount;
+    private long booksCount;
+    private long skippedCount;
+}
@@ -1,9 +0,0 @@
-insert into PERSON (ID, FULL_NAME, TITLE, AGE)
-values (1001, 'default user', 'reader', 55);
-
-insert into BOOK (ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID)
-values (2002, 'default book', 'author', 5500, 1001);
-
-insert into BOOK (ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID)
-values (3003, 'more default book', 'on more author', 6655, 1001);
-
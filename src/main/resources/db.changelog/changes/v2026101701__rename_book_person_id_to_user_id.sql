@@ -0,0 +1,7 @@
+alter table ulab_edu.book rename column person_id to user_id;
+
+alter table ulab_edu.person alter column id type bigint;
+alter table ulab_edu.book alter column id type bigint;
+alter table ulab_edu.book alter column user_id type bigint;
+
+comment on column ulab_edu.book.user_id is 'Идентификатор пользователя';
@@ -0,0 +1 @@
+drop index if exists ulab_edu.idx_ulab_edu_person_title;
@@ -0,0 +1,4 @@
+create index idx_ulab_edu_book_user_id on ulab_edu.book (user_id);
+
+create index idx_ulab_edu_book_user_id_title_author_page_count
+    on ulab_edu.book (user_id, title, author, page_count);
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset ulab:v2026101704_1
+--comment: Старый updateBook вставлял новую строку при каждом изменении книги. Перед уникальным индексом v2026101705 в каждой группе одинаковых книг пользователя остаётся книга с наименьшим id.
+delete from ulab_edu.book duplicate
+    using ulab_edu.book kept
+where kept.user_id = duplicate.user_id
+  and kept.title = duplicate.title
+  and kept.author = duplicate.author
+  and kept.page_count = duplicate.page_count
+  and kept.id < duplicate.id;
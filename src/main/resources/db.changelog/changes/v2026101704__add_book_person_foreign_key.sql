@@ -0,0 +1,3 @@
+alter table ulab_edu.book
+    add constraint fk_ulab_edu_book_user_id foreign key (user_id)
+        references ulab_edu.person (id) on delete cascade;
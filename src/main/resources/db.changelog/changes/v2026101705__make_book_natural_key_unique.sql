@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset ulab:v2026101705
+--preconditions onFail:HALT onError:HALT
+--precondition-sql-check expectedResult:0 select count(*) from (select 1 from ulab_edu.book group by user_id, title, author, page_count having count(*) > 1) duplicates
+--comment: Повторы книг удаляет v2026101704_1; проверка остаётся на случай повторов, записанных между двумя миграциями.
+drop index if exists ulab_edu.idx_ulab_edu_book_user_id_title_author_page_count;
+
+create unique index uq_ulab_edu_book_user_id_title_author_page_count
+    on ulab_edu.book (user_id, title, author, page_count);
@@ -0,0 +1,11 @@
+-- Шаг должен совпадать с app.id.allocation-size
+create sequence if not exists ulab_edu.person_id_seq increment by 50;
+create sequence if not exists ulab_edu.book_id_seq increment by 50;
+
+select setval('ulab_edu.person_id_seq', (select coalesce(max(id), 0) + 1 from ulab_edu.person), false);
+select setval('ulab_edu.book_id_seq', (select coalesce(max(id), 0) + 1 from ulab_edu.book), false);
+
+alter table ulab_edu.person
+    alter column id set default nextval('ulab_edu.person_id_seq');
+alter table ulab_edu.book
+    alter column id set default nextval('ulab_edu.book_id_seq');
@@ -0,0 +1,4 @@
+alter table ulab_edu.person
+    add column if not exists version bigint not null default 0;
+alter table ulab_edu.book
+    add column if not exists version bigint not null default 0;
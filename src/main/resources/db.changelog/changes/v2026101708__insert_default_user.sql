@@ -0,0 +1,15 @@
+--liquibase formatted sql
+
+--changeset ulab:v2026101708 context:demo
+insert into ulab_edu.person (id, full_name, title, age)
+values (1001, 'default user', 'reader', 55);
+
+insert into ulab_edu.book (id, title, author, page_count, user_id)
+values (2002, 'default book', 'author', 5500, 1001);
+
+insert into ulab_edu.book (id, title, author, page_count, user_id)
+values (3003, 'more default book', 'on more author', 6655, 1001);
+
+-- выдача id из последовательностей не должна пересечься с id, вставленными вручную
+select setval('ulab_edu.person_id_seq', (select max(id) + 1 from ulab_edu.person), false);
+select setval('ulab_edu.book_id_seq', (select max(id) + 1 from ulab_edu.book), false);
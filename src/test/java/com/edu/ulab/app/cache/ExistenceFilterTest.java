@@ -0,0 +1,124 @@
+package com.edu.ulab.app.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование фильтра существующих id {@link ExistenceFilter}.
+ */
+@DisplayName("Testing existence filter.")
+public class ExistenceFilterTest {
+
+    ExistenceFilter filter = new ExistenceFilter("test", 1_000, 0.01,
+            new ExpiringCache<>("testAbsent", 100, Duration.ofMinutes(1)));
+
+    @Test
+    @DisplayName("Filter is not built yet. Nothing should be reported absent.")
+    void isAbsent_notBuilt_Test() {
+        // then
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.isAbsent(42L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Looking up ids after rebuild. Only unknown ids should be absent.")
+    void isAbsent_afterRebuild_Test() {
+        // when
+        filter.rebuild(ids -> {
+            ids.accept(1L);
+            ids.accept(2L);
+        });
+
+        // then
+        assertThat(filter.isAbsent(1L)).isFalse();
+        assertThat(filter.isAbsent(2L)).isFalse();
+        assertThat(filter.isAbsent(1_000_000L)).isTrue();
+        assertThat(filter.bloomRejectCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Creating and deleting id. Id should become present, then absent.")
+    void markPresent_markAbsent_Test() {
+        // given
+        filter.rebuild(ids -> ids.accept(1L));
+
+        // when
+        filter.markPresent(5L);
+
+        // then
+        assertThat(filter.isAbsent(5L)).isFalse();
+
+        // when
+        filter.markAbsent(5L);
+
+        // then
+        assertThat(filter.isAbsent(5L)).isTrue();
+        assertThat(filter.absentCacheRejectCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Id saved during rebuild. It should not be reported absent.")
+    void markPresent_duringRebuild_Test() {
+        // when
+        filter.rebuild(ids -> {
+            ids.accept(1L);
+            filter.markPresent(7L);
+        });
+
+        // then
+        assertThat(filter.isAbsent(7L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Id stored without mark. It should be absent until the next rebuild.")
+    void isAbsent_storedWithoutMark_Test() {
+        // given
+        filter.rebuild(ids -> ids.accept(1L));
+
+        // when
+        boolean beforeRebuild = filter.isAbsent(1_000_000L);
+        filter.rebuild(ids -> {
+            ids.accept(1L);
+            ids.accept(1_000_000L);
+        });
+
+        // then
+        assertThat(beforeRebuild).isTrue();
+        assertThat(filter.isAbsent(1_000_000L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Rebuild fails. Filter should stay disabled.")
+    void rebuild_failure_Test() {
+        // when
+        filter.rebuild(ids -> {
+            throw new IllegalStateException("database is down");
+        });
+
+        // then
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.isAbsent(1L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Rebuild fails after successful one. Previous filter should keep working.")
+    void rebuild_failureKeepsPrevious_Test() {
+        // given
+        filter.rebuild(ids -> ids.accept(1L));
+
+        // when
+        filter.rebuild(ids -> {
+            ids.accept(2L);
+            throw new IllegalStateException("database is down");
+        });
+
+        // then
+        assertThat(filter.isReady()).isTrue();
+        assertThat(filter.isAbsent(1L)).isFalse();
+        assertThat(filter.isAbsent(1_000_000L)).isTrue();
+    }
+}
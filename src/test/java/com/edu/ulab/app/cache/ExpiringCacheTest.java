@@ -0,0 +1,110 @@
+package com.edu.ulab.app.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование кэша {@link ExpiringCache}.
+ */
+@DisplayName("Testing expiring cache.")
+public class ExpiringCacheTest {
+
+    AtomicLong ticker = new AtomicLong();
+
+    @Test
+    @DisplayName("Reading the same key twice. Loader should be called once.")
+    void get_loadsOnce_Test() {
+        // given
+        ExpiringCache<Long, String> cache = cacheOf(10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        cache.get(1L, key -> "value" + loads.incrementAndGet());
+        String result = cache.get(1L, key -> "value" + loads.incrementAndGet());
+
+        // then
+        assertThat(result).isEqualTo("value1");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Exceeding max size. Cache should evict down to max size.")
+    void put_evictsOverMaxSize_Test() {
+        // given
+        ExpiringCache<Long, String> cache = cacheOf(2, Duration.ofMinutes(1));
+        cache.put(1L, "first");
+        cache.put(2L, "second");
+
+        // when
+        cache.put(3L, "third");
+        cache.cleanUp();
+
+        // then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Reading expired entry. Should be a miss.")
+    void getIfPresent_expired_Test() {
+        // given
+        ExpiringCache<Long, String> cache = cacheOf(10, Duration.ofSeconds(1));
+        cache.put(1L, "value");
+
+        // when
+        ticker.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        // then
+        assertThat(cache.getIfPresent(1L)).isEmpty();
+        cache.cleanUp();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Invalidating entry. Next read should call loader.")
+    void invalidate_Test() {
+        // given
+        ExpiringCache<Long, String> cache = cacheOf(10, Duration.ofMinutes(1));
+        cache.put(1L, "old");
+
+        // when
+        cache.invalidate(1L);
+
+        // then
+        assertThat(cache.get(1L, key -> "new")).isEqualTo("new");
+    }
+
+    @Test
+    @DisplayName("Invalidating entry while it is loaded. Loaded value should not be cached.")
+    void get_invalidatedDuringLoad_Test() {
+        // given
+        ExpiringCache<Long, String> cache = cacheOf(10, Duration.ofMinutes(1));
+
+        // when
+        String loaded = cache.get(1L, key -> {
+            cache.invalidate(key);
+            return "stale";
+        });
+
+        // then
+        assertThat(loaded).isEqualTo("stale");
+        assertThat(cache.getIfPresent(1L)).isEmpty();
+        assertThat(cache.get(1L, key -> "fresh")).isEqualTo("fresh");
+        assertThat(cache.getIfPresent(1L)).contains("fresh");
+    }
+
+    /**
+     * Кэш на управляемых часах, обслуживание Caffeine выполняется в вызывающем потоке.
+     */
+    private ExpiringCache<Long, String> cacheOf(int maxSize, Duration ttl) {
+        return new ExpiringCache<>("test", maxSize, ttl, ticker::get, Runnable::run);
+    }
+}
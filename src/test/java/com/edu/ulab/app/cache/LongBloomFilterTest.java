@@ -0,0 +1,51 @@
+package com.edu.ulab.app.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование фильтра Блума {@link LongBloomFilter}.
+ */
+@DisplayName("Testing long Bloom filter.")
+public class LongBloomFilterTest {
+
+    @Test
+    @DisplayName("Checking added keys. All of them should be found.")
+    void mightContain_addedKeys_Test() {
+        // given
+        LongBloomFilter filter = new LongBloomFilter(10_000, 0.01);
+
+        // when
+        for (long key = 1; key <= 10_000; key++) {
+            filter.put(key);
+        }
+
+        // then
+        for (long key = 1; key <= 10_000; key++) {
+            assertThat(filter.mightContain(key)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("Checking keys that were not added. False positive rate should be near the configured one.")
+    void mightContain_falsePositiveRate_Test() {
+        // given
+        LongBloomFilter filter = new LongBloomFilter(10_000, 0.01);
+        for (long key = 1; key <= 10_000; key++) {
+            filter.put(key);
+        }
+
+        // when
+        int falsePositives = 0;
+        for (long key = 10_001; key <= 110_000; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+
+        // then
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+}
@@ -0,0 +1,125 @@
+package com.edu.ulab.app.cache;
+
+import com.edu.ulab.app.exception.LoadTimeoutException;
+import com.edu.ulab.app.exception.NotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование объединения загрузок {@link SingleFlight}.
+ */
+@DisplayName("Testing single-flight loads.")
+public class SingleFlightTest {
+
+    SingleFlight<Long, String> singleFlight = new SingleFlight<>("test", Duration.ofSeconds(5));
+
+    @Test
+    @DisplayName("Concurrent loads of the same key. Loader should be called once.")
+    void load_coalescesConcurrentCalls_Test() throws Exception {
+        // given
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.load(1L, key -> {
+            loaderStarted.countDown();
+            await(releaseLoader);
+            return "value" + loads.incrementAndGet();
+        }));
+        assertThat(loaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(
+                () -> singleFlight.load(1L, key -> "value" + loads.incrementAndGet()));
+        while (singleFlight.coalescedCount() == 0) {
+            Thread.onSpinWait();
+        }
+        releaseLoader.countDown();
+
+        // then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("value1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("value1");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(singleFlight.loadCount()).isEqualTo(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Load after previous one finished. Loader should be called again.")
+    void load_doesNotRememberResult_Test() {
+        // given
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        singleFlight.load(1L, key -> "value" + loads.incrementAndGet());
+        String result = singleFlight.load(1L, key -> "value" + loads.incrementAndGet());
+
+        // then
+        assertThat(result).isEqualTo("value2");
+        assertThat(singleFlight.coalescedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Loader fails. Exception should be rethrown as is and key released.")
+    void load_failure_Test() {
+        // then
+        assertThatThrownBy(() -> singleFlight.load(1L, key -> {
+            throw new NotFoundException("User not found");
+        })).isInstanceOf(NotFoundException.class);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Forgetting key during load. Next call should start its own load.")
+    void forget_Test() {
+        // when
+        String result = singleFlight.load(1L, key -> {
+            singleFlight.forget(key);
+            return "old+" + singleFlight.load(key, sameKey -> "new");
+        });
+
+        // then
+        assertThat(result).isEqualTo("old+new");
+        assertThat(singleFlight.loadCount()).isEqualTo(2);
+        assertThat(singleFlight.coalescedCount()).isZero();
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Load takes longer than join timeout. Waiting call should give up, loader should finish.")
+    void load_joinTimeout_Test() throws Exception {
+        // given
+        SingleFlight<Long, String> shortWait = new SingleFlight<>("test", Duration.ofMillis(50));
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> shortWait.load(1L, key -> {
+            loaderStarted.countDown();
+            await(releaseLoader);
+            return "value";
+        }));
+        assertThat(loaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // then
+        assertThatThrownBy(() -> shortWait.load(1L, key -> "other"))
+                .isInstanceOf(LoadTimeoutException.class);
+        assertThat(shortWait.timeoutCount()).isEqualTo(1);
+        releaseLoader.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
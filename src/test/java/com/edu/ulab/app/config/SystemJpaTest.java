@@ -5,6 +5,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,12 +16,16 @@ import java.lang.annotation.Target;
 
 /**
  * Аннотация для системного тестирования запросов JPA.
+ * <p>
+ * Id выделяются по одному, чтобы число запросов nextval не зависело от порядка тестов,
+ * а кэш второго уровня выключен, чтобы число select не зависело от уже прочитанных сущностей.
  */
 @ActiveProfiles("test")
 @ExtendWith(SpringExtension.class)
 @DataJpaTest
 @ContextConfiguration(classes = {SystemTestingJpaConfig.class, PostgreSqlContainerConfig.class})
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {"app.id.allocation-size=1", "app.hibernate.second-level-cache.enabled=false"})
 @Transactional
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
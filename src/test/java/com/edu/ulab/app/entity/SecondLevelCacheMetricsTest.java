@@ -0,0 +1,73 @@
+package com.edu.ulab.app.entity;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.stat.HibernateMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование метрик регионов кэша второго уровня: фабрика сессий с сущностями и настройками кэша
+ * из application.yaml, без подключения к базе.
+ */
+@DisplayName("Testing second-level cache metrics.")
+public class SecondLevelCacheMetricsTest {
+
+    private static final String EHCACHE_CONFIG =
+            SecondLevelCacheMetricsTest.class.getResource("/ehcache.xml").toString();
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    StandardServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
+            .applySetting("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect")
+            .applySetting("hibernate.temp.use_jdbc_metadata_defaults", "false")
+            .applySetting("hibernate.connection.initial_pool_size", "0")
+            .applySetting("hibernate.connection.url", "jdbc:postgresql://localhost:1/none")
+            .applySetting("hibernate.generate_statistics", "true")
+            .applySetting("hibernate.cache.use_second_level_cache", "true")
+            .applySetting("hibernate.cache.use_query_cache", "true")
+            .applySetting("hibernate.cache.region.factory_class", "jcache")
+            .applySetting("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider")
+            .applySetting("hibernate.javax.cache.uri", EHCACHE_CONFIG)
+            .applySetting("hibernate.javax.cache.missing_cache_strategy", "fail")
+            .build();
+
+    SessionFactory sessionFactory = new MetadataSources(serviceRegistry)
+            .addAnnotatedClass(Person.class)
+            .addAnnotatedClass(Book.class)
+            .buildMetadata()
+            .buildSessionFactory();
+
+    @AfterEach
+    void closeSessionFactory() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(serviceRegistry);
+    }
+
+    @Test
+    @DisplayName("Binding Hibernate metrics. Hit and miss counters should exist for each entity region.")
+    void bindTo_secondLevelCacheRegions_Test() {
+        // when
+        new HibernateMetrics(sessionFactory, "entityManagerFactory", List.of()).bindTo(meterRegistry);
+
+        // then
+        for (String region : new String[]{"person", "book"}) {
+            Collection<FunctionCounter> counters = meterRegistry.find("hibernate.second.level.cache.requests")
+                    .tag("region", region)
+                    .functionCounters();
+            assertThat(counters)
+                    .extracting(counter -> counter.getId().getTag("result"))
+                    .containsExactlyInAnyOrder("hit", "miss");
+        }
+    }
+}
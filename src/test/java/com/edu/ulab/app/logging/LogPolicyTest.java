@@ -0,0 +1,43 @@
+package com.edu.ulab.app.logging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование политики логирования {@link LogPolicy}.
+ */
+@DisplayName("Testing logging policy.")
+public class LogPolicyTest {
+
+    @Test
+    @DisplayName("Sampling by key. Unknown keys should always be logged, zero rate never.")
+    void sampled_Test() {
+        // given
+        LoggingProperties properties = new LoggingProperties();
+        properties.setSampleRates(Map.of("never", 0.0, "always", 1.0));
+        LogPolicy logPolicy = new LogPolicy(properties);
+
+        // then
+        assertThat(logPolicy.sampled("unknown")).isTrue();
+        assertThat(logPolicy.sampled("always")).isTrue();
+        assertThat(logPolicy.sampled("never")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Formatting long collection. Only first elements and the rest count should be printed.")
+    void capped_Test() {
+        // given
+        LoggingProperties properties = new LoggingProperties();
+        properties.setMaxCollectionElements(2);
+        LogPolicy logPolicy = new LogPolicy(properties);
+
+        // then
+        assertThat(logPolicy.capped(List.of(1L, 2L, 3L, 4L))).hasToString("[1, 2, ... 2 more]");
+        assertThat(logPolicy.capped(List.of(1L, 2L))).hasToString("[1, 2]");
+    }
+}
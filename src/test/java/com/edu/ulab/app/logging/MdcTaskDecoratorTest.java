@@ -0,0 +1,57 @@
+package com.edu.ulab.app.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование переноса MDC в задачи пула {@link MdcTaskDecorator}.
+ */
+@DisplayName("Testing MDC task decorator.")
+public class MdcTaskDecoratorTest {
+
+    private final MdcTaskDecorator decorator = new MdcTaskDecorator();
+
+    @AfterEach
+    void clearMdc() {
+        MDC.clear();
+    }
+
+    @Test
+    @DisplayName("Running decorated task. Task should see MDC captured at submission time.")
+    void decorate_CopiesContext_Test() {
+        // given
+        AtomicReference<String> seen = new AtomicReference<>();
+        MDC.put("requestId", "rq-1");
+        Runnable task = decorator.decorate(() -> seen.set(MDC.get("requestId")));
+        MDC.clear();
+
+        // when
+        task.run();
+
+        // then
+        assertThat(seen.get()).isEqualTo("rq-1");
+    }
+
+    @Test
+    @DisplayName("Running decorated task. Worker MDC should be restored after task.")
+    void decorate_RestoresContext_Test() {
+        // given
+        MDC.put("requestId", "rq-1");
+        Runnable task = decorator.decorate(() -> MDC.put("extra", "value"));
+        MDC.clear();
+        MDC.put("requestId", "worker");
+
+        // when
+        task.run();
+
+        // then
+        assertThat(MDC.get("requestId")).isEqualTo("worker");
+        assertThat(MDC.get("extra")).isNull();
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
@@ -28,6 +29,8 @@ public class BookRepositoryTest {
     BookRepository bookRepository;
     @Autowired
     UserRepository userRepository;
+    @Autowired
+    TestEntityManager entityManager;
 
     @BeforeEach
     void setUp() {
@@ -59,12 +62,13 @@ public class BookRepositoryTest {
 
         //When
         Book result = bookRepository.save(book);
+        entityManager.flush();
 
         //Then
         assertNotNull(result);
         assertThat(result.getPageCount()).isEqualTo(1000);
         assertThat(result.getTitle()).isEqualTo("test");
-        assertSelectCount(0);
+        assertSelectCount(2);
         assertInsertCount(2);
         assertUpdateCount(0);
         assertDeleteCount(0);
@@ -80,7 +84,7 @@ public class BookRepositoryTest {
     void updateBook() {
         // Given
         Person createdUser = new Person();
-        createdUser.setUserId(1L);
+        createdUser.setUserId(1001L);
 
         Book createdBook = new Book();
         createdBook.setUserId(createdUser.getUserId());
@@ -98,6 +102,7 @@ public class BookRepositoryTest {
 
         // When
         Book result = bookRepository.save(updatedBook);
+        entityManager.flush();
 
         // Then
         assertNotNull(result);
@@ -105,7 +110,7 @@ public class BookRepositoryTest {
         assertThat(result.getAuthor()).isEqualTo(updatedBook.getAuthor());
         assertThat(result.getPageCount()).isEqualTo(updatedBook.getPageCount());
 
-        assertSelectCount(0);
+        assertSelectCount(2);
         assertInsertCount(2);
         assertUpdateCount(0);
         assertDeleteCount(0);
@@ -121,7 +126,7 @@ public class BookRepositoryTest {
     void getBookByUserId() {
         // Given
         Person user = new Person();
-        user.setUserId(1L);
+        user.setUserId(1001L);
 
         Book book = new Book();
         book.setUserId(user.getUserId());
@@ -130,6 +135,7 @@ public class BookRepositoryTest {
         book.setPageCount(1000);
 
         bookRepository.save(book);
+        entityManager.flush();
 
         // When
         Book foundBook = bookRepository.findById(book.getId()).get();
@@ -155,8 +161,12 @@ public class BookRepositoryTest {
     })
     void getAllBookByUserId() {
         // Given
-        Person user = new Person();
-        user.setUserId(1L);
+        Person person = new Person();
+        person.setAge(25);
+        person.setTitle("reader");
+        person.setFullName("Test Test");
+
+        Person user = userRepository.save(person);
 
         Book book = new Book();
         book.setUserId(user.getUserId());
@@ -165,6 +175,7 @@ public class BookRepositoryTest {
         book.setPageCount(1000);
 
         bookRepository.save(book);
+        entityManager.flush();
 
         List<Book> listWithRightBooks = new ArrayList<>();
         listWithRightBooks.add(book);
@@ -177,8 +188,8 @@ public class BookRepositoryTest {
         assertThat(resultBooksList.size()).isEqualTo(1);
         assertThat(resultBooksList).isEqualTo(listWithRightBooks);
 
-        assertSelectCount(1);
-        assertInsertCount(1);
+        assertSelectCount(3);
+        assertInsertCount(2);
         assertUpdateCount(0);
         assertDeleteCount(0);
     }
@@ -193,7 +204,7 @@ public class BookRepositoryTest {
     void deleteBookById() {
         // Given
         Person user = new Person();
-        user.setUserId(1L);
+        user.setUserId(1001L);
 
         Book book = new Book();
         book.setUserId(user.getUserId());
@@ -202,6 +213,7 @@ public class BookRepositoryTest {
         book.setPageCount(1000);
 
         bookRepository.save(book);
+        entityManager.flush();
 
         // When
         bookRepository.deleteById(book.getId());
@@ -210,7 +222,7 @@ public class BookRepositoryTest {
         // count = 2, потому что в репо остались ещё две книги
         assertThat(bookRepository.count()).isEqualTo(2);
 
-        assertSelectCount(1);
+        assertSelectCount(2);
         assertInsertCount(1);
         assertUpdateCount(0);
         assertDeleteCount(1);
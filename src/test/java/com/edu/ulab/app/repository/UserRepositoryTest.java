@@ -7,6 +7,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
@@ -21,6 +22,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 public class UserRepositoryTest {
     @Autowired
     UserRepository userRepository;
+    @Autowired
+    TestEntityManager entityManager;
 
     @BeforeEach
     void setUp() {
@@ -43,6 +46,7 @@ public class UserRepositoryTest {
 
         //When
         Person result = userRepository.save(person);
+        entityManager.flush();
 
         //Then
         assertNotNull(result);
@@ -50,7 +54,7 @@ public class UserRepositoryTest {
         assertThat(result.getTitle()).isEqualTo("reader");
         assertThat(result.getAge()).isEqualTo(30);
 
-        assertSelectCount(0);
+        assertSelectCount(1);
         assertInsertCount(1);
         assertUpdateCount(0);
         assertDeleteCount(0);
@@ -78,12 +82,13 @@ public class UserRepositoryTest {
 
         // When
         Person result = userRepository.save(updatedUser);
+        entityManager.flush();
 
         // Then
         assertNotNull(result);
         assertThat(result.getAge()).isEqualTo(updatedUser.getAge());
 
-        assertSelectCount(0);
+        assertSelectCount(2);
         assertInsertCount(2);
         assertUpdateCount(0);
         assertDeleteCount(0);
@@ -103,6 +108,7 @@ public class UserRepositoryTest {
         createdUser.setTitle("reader");
         createdUser.setAge(111);
         userRepository.save(createdUser);
+        entityManager.flush();
 
         // When
         Person result = userRepository.findById(createdUser.getUserId()).get();
@@ -132,6 +138,7 @@ public class UserRepositoryTest {
         user.setTitle("reader");
         user.setAge(31);
         userRepository.save(user);
+        entityManager.flush();
 
         // When
         userRepository.deleteById(user.getUserId());
@@ -140,7 +147,7 @@ public class UserRepositoryTest {
         // count = 1, потому что в репо остался ещё один юзер
         assertThat(userRepository.count()).isEqualTo(1);
 
-        assertSelectCount(1);
+        assertSelectCount(2);
         assertInsertCount(1);
         assertUpdateCount(0);
         assertDeleteCount(1);
@@ -0,0 +1,65 @@
+package com.edu.ulab.app.retry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Тестирование {@link OptimisticLockRetry}.
+ */
+@DisplayName("Testing optimistic lock retry.")
+public class OptimisticLockRetryTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    OptimisticLockRetry retry = new OptimisticLockRetry(
+            mock(PlatformTransactionManager.class), meterRegistry, 3, Duration.ZERO);
+
+    @Test
+    @DisplayName("Conflict on first attempts. Should retry and count conflicts.")
+    void execute_retriesConflicts_Test() {
+        // given
+        AtomicInteger attempts = new AtomicInteger();
+
+        // when
+        String result = retry.execute("test", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            return "updated";
+        });
+
+        // then
+        assertThat(result).isEqualTo("updated");
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter(OptimisticLockRetry.CONFLICTS_METRIC, "operation", "test").count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.counter(OptimisticLockRetry.EXHAUSTED_METRIC, "operation", "test").count())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Conflict on every attempt. Should give up after max attempts.")
+    void execute_exhausted_Test() {
+        // given
+        AtomicInteger attempts = new AtomicInteger();
+
+        // then
+        assertThatThrownBy(() -> retry.execute("test", () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("conflict");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter(OptimisticLockRetry.EXHAUSTED_METRIC, "operation", "test").count())
+                .isEqualTo(1);
+    }
+}
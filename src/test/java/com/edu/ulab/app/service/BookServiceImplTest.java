@@ -9,19 +9,24 @@ import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.UserServiceException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.projection.BookIdProjection;
+import com.edu.ulab.app.retry.OptimisticLockRetry;
 import com.edu.ulab.app.service.impl.BookServiceImpl;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -44,6 +49,9 @@ public class BookServiceImplTest {
     @Mock
     BookMapper bookMapper;
 
+    @Mock
+    OptimisticLockRetry optimisticLockRetry;
+
     @Test
     @DisplayName("Create book. Should be successful.")
     void saveBook_success_Test() {
@@ -88,31 +96,75 @@ public class BookServiceImplTest {
         assertEquals(1L, bookDtoResult.getId());
     }
 
+    @Test
+    @DisplayName("Create books in one batch. Ids should keep request order.")
+    void saveBooks_success_Test() {
+        //given
+        BookDto firstBookDto = new BookDto();
+        firstBookDto.setUserId(1L);
+        firstBookDto.setTitle("first title");
+
+        BookDto secondBookDto = new BookDto();
+        secondBookDto.setUserId(1L);
+        secondBookDto.setTitle("second title");
+
+        Book firstBook = new Book();
+        firstBook.setTitle("first title");
+
+        Book secondBook = new Book();
+        secondBook.setTitle("second title");
+
+        Book firstSavedBook = new Book();
+        firstSavedBook.setId(1L);
+
+        Book secondSavedBook = new Book();
+        secondSavedBook.setId(2L);
+
+        BookDto firstResult = new BookDto();
+        firstResult.setId(1L);
+
+        BookDto secondResult = new BookDto();
+        secondResult.setId(2L);
+
+        //when
+
+        when(bookMapper.bookDtoToBook(firstBookDto)).thenReturn(firstBook);
+        when(bookMapper.bookDtoToBook(secondBookDto)).thenReturn(secondBook);
+        when(bookRepository.saveAll(List.of(firstBook, secondBook)))
+                .thenReturn(List.of(firstSavedBook, secondSavedBook));
+        when(bookMapper.bookToBookDto(firstSavedBook)).thenReturn(firstResult);
+        when(bookMapper.bookToBookDto(secondSavedBook)).thenReturn(secondResult);
+
+        //then
+        List<BookDto> result = bookService.createBooks(List.of(firstBookDto, secondBookDto));
+        assertEquals(List.of(firstResult, secondResult), result);
+        verify(bookRepository).saveAll(List.of(firstBook, secondBook));
+    }
+
     @Test
     @DisplayName("Updating book. Should be successful.")
-    void updateBook_success_Test () {
+    void updateBook_success_Test() {
         // given
 
         Book book = new Book();
-        book.setId(1L);
         book.setUserId(1L);
-        book.setTitle("Title");
-        book.setAuthor("Author");
+        book.setTitle("Title updated");
+        book.setAuthor("Author updated");
         book.setPageCount(100);
 
         BookDto bookDto = new BookDto();
-        bookDto.setId(1L);
         bookDto.setUserId(1L);
-        bookDto.setTitle("Title");
-        bookDto.setAuthor("Author");
+        bookDto.setTitle("Title updated");
+        bookDto.setAuthor("Author updated");
         bookDto.setPageCount(100);
 
-        Book updatedBook = new Book();
-        book.setId(1L);
-        book.setUserId(1L);
-        book.setTitle("Title updated");
-        book.setAuthor("Author updated");
-        book.setPageCount(100);
+        Book bookFromDB = new Book();
+        bookFromDB.setId(1L);
+        bookFromDB.setUserId(1L);
+        bookFromDB.setTitle("Title");
+        bookFromDB.setAuthor("Author");
+        bookFromDB.setPageCount(100);
+        bookFromDB.setVersion(2L);
 
         BookDto updatedBookDto = new BookDto();
         updatedBookDto.setId(1L);
@@ -123,16 +175,123 @@ public class BookServiceImplTest {
 
         // when
 
+        when(optimisticLockRetry.execute(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
         when(bookMapper.bookDtoToBook(bookDto)).thenReturn(book);
-        when(bookRepository.findByIdForUpdate(book.getId())).thenReturn(Optional.ofNullable(book));
-        when(bookMapper.bookToBookDto(updatedBook)).thenReturn(updatedBookDto);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(bookFromDB));
+        when(bookRepository.save(bookFromDB)).thenReturn(bookFromDB);
+        when(bookMapper.bookToBookDto(bookFromDB)).thenReturn(updatedBookDto);
 
         // then
 
-        BookDto bookDtoResult = bookService.updateBook(updatedBookDto.getId(), updatedBookDto);
+        BookDto bookDtoResult = bookService.updateBook(1L, bookDto);
         assertNotNull(bookDtoResult);
-        assertEquals(bookDto, bookDtoResult);
-        verify(bookRepository).save(book);
+        assertEquals(updatedBookDto, bookDtoResult);
+        assertEquals("Title updated", bookFromDB.getTitle());
+        assertEquals(2L, bookFromDB.getVersion());
+        verify(bookRepository).save(bookFromDB);
+        verify(bookRepository, never()).save(book);
+    }
+
+    @Test
+    @DisplayName("Updating existing book by its params. Nothing should be written.")
+    void updateBookByParams_existingBook_Test() {
+        // given
+
+        BookDto bookDto = new BookDto();
+        bookDto.setUserId(1L);
+        bookDto.setTitle("Title");
+
+        Book book = new Book();
+        book.setUserId(1L);
+        book.setTitle("Title");
+
+        Book bookFromDB = new Book();
+        bookFromDB.setId(5L);
+        bookFromDB.setUserId(1L);
+        bookFromDB.setTitle("Title");
+
+        BookDto resultBookDto = new BookDto();
+        resultBookDto.setId(5L);
+
+        // when
+
+        when(bookMapper.bookDtoToBook(bookDto)).thenReturn(book);
+        when(bookRepository.findBookByParamWithoutId(book)).thenReturn(Optional.of(bookFromDB));
+        when(bookMapper.bookToBookDto(bookFromDB)).thenReturn(resultBookDto);
+
+        // then
+
+        BookDto result = bookService.updateBook(bookDto);
+        assertEquals(5L, result.getId());
+        verify(bookRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Updating missing book by its params. Book should be inserted once.")
+    void updateBookByParams_missingBook_Test() {
+        // given
+
+        BookDto bookDto = new BookDto();
+        bookDto.setUserId(1L);
+        bookDto.setTitle("Title");
+
+        Book book = new Book();
+        book.setUserId(1L);
+        book.setTitle("Title");
+
+        Book savedBook = new Book();
+        savedBook.setId(6L);
+
+        BookDto resultBookDto = new BookDto();
+        resultBookDto.setId(6L);
+
+        // when
+
+        when(bookMapper.bookDtoToBook(bookDto)).thenReturn(book);
+        when(bookRepository.findBookByParamWithoutId(book)).thenReturn(Optional.empty());
+        when(bookRepository.save(book)).thenReturn(savedBook);
+        when(bookMapper.bookToBookDto(savedBook)).thenReturn(resultBookDto);
+
+        // then
+
+        BookDto result = bookService.updateBook(bookDto);
+        assertEquals(6L, result.getId());
+        verify(bookRepository, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("Updating book inserted concurrently. Already saved book should be returned.")
+    void updateBookByParams_concurrentInsert_Test() {
+        // given
+
+        BookDto bookDto = new BookDto();
+        bookDto.setUserId(1L);
+        bookDto.setTitle("Title");
+
+        Book book = new Book();
+        book.setUserId(1L);
+        book.setTitle("Title");
+
+        Book concurrentBook = new Book();
+        concurrentBook.setId(7L);
+
+        BookDto resultBookDto = new BookDto();
+        resultBookDto.setId(7L);
+
+        // when
+
+        when(bookMapper.bookDtoToBook(bookDto)).thenReturn(book);
+        when(bookRepository.findBookByParamWithoutId(book))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(concurrentBook));
+        when(bookRepository.save(book)).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(bookMapper.bookToBookDto(concurrentBook)).thenReturn(resultBookDto);
+
+        // then
+
+        BookDto result = bookService.updateBook(bookDto);
+        assertEquals(7L, result.getId());
     }
 
     @Test
@@ -237,6 +396,45 @@ public class BookServiceImplTest {
         verify(bookRepository).findAllBooksByUserId(user.getUserId());
     }
 
+    @Test
+    @DisplayName("Getting all book ids. Books should not be mapped.")
+    void getAllBookIds_Test() {
+        // given
+        Person user = new Person();
+        user.setUserId(1L);
+
+        // when
+
+        when(bookRepository.findAllBookIdsByUserId(user.getUserId())).thenReturn(List.of(1L, 2L));
+
+        // then
+
+        List<Long> resultBookIds = bookService.getAllBookIdsByUserId(user.getUserId());
+        assertEquals(List.of(1L, 2L), resultBookIds);
+        verify(bookRepository, never()).findAllBooksByUserId(anyLong());
+        verifyNoInteractions(bookMapper);
+    }
+
+    @Test
+    @DisplayName("Getting book ids of many users. Ids should be grouped by user.")
+    void getAllBookIdsByUserIds_Test() {
+        // given
+        BookIdProjection firstRow = bookIdRow(1L, 10L);
+        BookIdProjection secondRow = bookIdRow(2L, 11L);
+        BookIdProjection thirdRow = bookIdRow(1L, 12L);
+
+        // when
+
+        when(bookRepository.findAllBookIdsByUserIds(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(firstRow, secondRow, thirdRow));
+
+        // then
+
+        Map<Long, List<Long>> result = bookService.getAllBookIdsByUserIds(List.of(1L, 2L, 3L));
+        assertEquals(Map.of(1L, List.of(10L, 12L), 2L, List.of(11L)), result);
+        verifyNoInteractions(bookMapper);
+    }
+
     @Test
     @DisplayName("Deleting book. Should be successful.")
     void deleteBook_success_Test() {
@@ -287,4 +485,31 @@ public class BookServiceImplTest {
                 .hasMessage("Book not found");
         verify(bookRepository).deleteById(bookForDelete.getId());
     }
+
+    @Test
+    @DisplayName("Deleting all user's books. Should delete in one statement.")
+    void deleteAllBooksByUserId_success_Test() {
+        // given
+
+        Person user = new Person();
+        user.setUserId(1L);
+
+        // when
+
+        when(bookRepository.deleteAllBooksByUserId(user.getUserId())).thenReturn(3);
+
+        // then
+
+        int deletedBooksCount = bookService.deleteAllBooksByUserId(user.getUserId());
+        assertEquals(3, deletedBooksCount);
+        verify(bookRepository).deleteAllBooksByUserId(user.getUserId());
+        verify(bookRepository, never()).deleteById(anyLong());
+    }
+
+    private BookIdProjection bookIdRow(Long userId, Long bookId) {
+        BookIdProjection row = mock(BookIdProjection.class);
+        when(row.getUserId()).thenReturn(userId);
+        when(row.getBookId()).thenReturn(bookId);
+        return row;
+    }
 }
@@ -0,0 +1,41 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.service.impl.CopyCsvBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование {@link CopyCsvBuilder}.
+ */
+@DisplayName("Testing COPY csv rows.")
+public class CopyCsvBuilderTest {
+
+    @Test
+    @DisplayName("Writing rows. Strings should be quoted, nulls left empty.")
+    void rows_Test() {
+        // given
+        CopyCsvBuilder csv = new CopyCsvBuilder();
+
+        // when
+        csv.field(1L).field("Name").field((String) null).field(30).endRow();
+        csv.field(2L).field("").field((Long) null).endRow();
+
+        // then
+        assertThat(csv.toString()).isEqualTo("1,\"Name\",,30\n2,\"\",\n");
+    }
+
+    @Test
+    @DisplayName("Writing string with quotes, commas and line breaks. Should be escaped.")
+    void escaping_Test() {
+        // given
+        CopyCsvBuilder csv = new CopyCsvBuilder();
+
+        // when
+        csv.field("say \"hi\", then\nleave").endRow();
+
+        // then
+        assertThat(csv.toString()).isEqualTo("\"say \"\"hi\"\", then\nleave\"\n");
+    }
+}
@@ -0,0 +1,138 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.ImportResultDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.id.PooledIdAllocator;
+import com.edu.ulab.app.service.impl.UserBookImportServiceCopy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестирование функционала {@link UserBookImportServiceCopy}.
+ */
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DisplayName("Testing COPY import functionality.")
+public class UserBookImportServiceCopyTest {
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    PooledIdAllocator personIdAllocator;
+
+    @Mock
+    PooledIdAllocator bookIdAllocator;
+
+    @Mock
+    Connection connection;
+
+    @Mock
+    PGConnection pgConnection;
+
+    @Mock
+    CopyManager copyManager;
+
+    List<String> copiedData = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString(), any(Reader.class))).thenAnswer(invocation -> {
+            copiedData.add(new BufferedReader(invocation.<Reader>getArgument(1)).lines()
+                    .collect(Collectors.joining("\n")));
+            return 1L;
+        });
+    }
+
+    @Test
+    @DisplayName("Importing users with books. Books should reference allocated user ids.")
+    void importUsersWithBooks_Test() throws Exception {
+        // given
+        UserBookImportServiceCopy importService =
+                new UserBookImportServiceCopy(jdbcTemplate, personIdAllocator, bookIdAllocator, 10);
+        when(personIdAllocator.nextIds(2)).thenReturn(new long[]{101L, 102L});
+        when(bookIdAllocator.nextIds(1)).thenReturn(new long[]{501L});
+
+        UserWithBooksDto first = new UserWithBooksDto(user("First"), List.of(book("Title")));
+        UserWithBooksDto second = new UserWithBooksDto(user("Second"), List.of());
+
+        // when
+        ImportResultDto result = importService.importUsersWithBooks(List.of(first, second).iterator());
+
+        // then
+        assertThat(result.getUsersCount()).isEqualTo(2);
+        assertThat(result.getBooksCount()).isEqualTo(1);
+        assertThat(result.getUserIds()).containsExactly(101L, 102L);
+        assertThat(copiedData).containsExactly(
+                "101,\"First\",\"reader\",30\n102,\"Second\",\"reader\",30",
+                "501,\"Title\",\"Author\",100,101");
+        verify(copyManager, times(2)).copyIn(anyString(), any(Reader.class));
+    }
+
+    @Test
+    @DisplayName("Importing more users than batch size. Should copy several batches.")
+    void importUsersWithBooks_batches_Test() throws Exception {
+        // given
+        UserBookImportServiceCopy importService =
+                new UserBookImportServiceCopy(jdbcTemplate, personIdAllocator, bookIdAllocator, 1);
+        when(personIdAllocator.nextIds(1)).thenReturn(new long[]{101L}, new long[]{102L});
+        when(bookIdAllocator.nextIds(0)).thenReturn(new long[0]);
+
+        UserWithBooksDto first = new UserWithBooksDto(user("First"), List.of());
+        UserWithBooksDto second = new UserWithBooksDto(user("Second"), List.of());
+
+        // when
+        ImportResultDto result = importService.importUsersWithBooks(List.of(first, second).iterator());
+
+        // then
+        assertThat(result.getUsersCount()).isEqualTo(2);
+        assertThat(result.getBooksCount()).isZero();
+        assertThat(result.getUserIds()).containsExactly(101L, 102L);
+        assertThat(copiedData).containsExactly(
+                "101,\"First\",\"reader\",30",
+                "102,\"Second\",\"reader\",30");
+    }
+
+    private UserDto user(String fullName) {
+        UserDto user = new UserDto();
+        user.setFullName(fullName);
+        user.setTitle("reader");
+        user.setAge(30);
+        return user;
+    }
+
+    private BookDto book(String title) {
+        BookDto book = new BookDto();
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}
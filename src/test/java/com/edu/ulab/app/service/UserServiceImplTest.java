@@ -1,11 +1,17 @@
 package com.edu.ulab.app.service;
 
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.UserServiceException;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.repository.projection.UserBookIdProjection;
+import com.edu.ulab.app.repository.projection.UserBookProjection;
+import com.edu.ulab.app.retry.OptimisticLockRetry;
 import com.edu.ulab.app.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,7 +21,11 @@ import org.mockito.Mock;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -38,6 +48,9 @@ public class UserServiceImplTest {
     @Mock
     UserMapper userMapper;
 
+    @Mock
+    OptimisticLockRetry optimisticLockRetry;
+
     @Test
     @DisplayName("Creating new user. Should be successful.")
     void savePerson_success_Test() {
@@ -80,6 +93,51 @@ public class UserServiceImplTest {
         verify(userRepository).save(user);
     }
 
+    @Test
+    @DisplayName("Creating users in one batch. Ids should keep request order.")
+    void savePersons_success_Test() {
+        //given
+
+        UserDto firstUserDto = new UserDto();
+        firstUserDto.setFullName("first name");
+
+        UserDto secondUserDto = new UserDto();
+        secondUserDto.setFullName("second name");
+
+        Person firstUser = new Person();
+        firstUser.setFullName("first name");
+
+        Person secondUser = new Person();
+        secondUser.setFullName("second name");
+
+        Person firstSavedUser = new Person();
+        firstSavedUser.setUserId(1L);
+
+        Person secondSavedUser = new Person();
+        secondSavedUser.setUserId(2L);
+
+        UserDto firstResult = new UserDto();
+        firstResult.setUserId(1L);
+
+        UserDto secondResult = new UserDto();
+        secondResult.setUserId(2L);
+
+        //when
+
+        when(userMapper.userDtoToPerson(firstUserDto)).thenReturn(firstUser);
+        when(userMapper.userDtoToPerson(secondUserDto)).thenReturn(secondUser);
+        when(userRepository.saveAll(List.of(firstUser, secondUser)))
+                .thenReturn(List.of(firstSavedUser, secondSavedUser));
+        when(userMapper.personToUserDto(firstSavedUser)).thenReturn(firstResult);
+        when(userMapper.personToUserDto(secondSavedUser)).thenReturn(secondResult);
+
+        //then
+
+        List<UserDto> result = userService.createUsers(List.of(firstUserDto, secondUserDto));
+        assertEquals(List.of(firstResult, secondResult), result);
+        verify(userRepository).saveAll(List.of(firstUser, secondUser));
+    }
+
     @Test
     @DisplayName("Updating user. Should be successful.")
     void updateUser_success_Test() {
@@ -87,21 +145,22 @@ public class UserServiceImplTest {
 
         Person userForUpdate = new Person();
         userForUpdate.setUserId(1L);
-        userForUpdate.setFullName("name");
-        userForUpdate.setTitle("title");
-        userForUpdate.setAge(11);
+        userForUpdate.setFullName("updated name");
+        userForUpdate.setTitle("updated title");
+        userForUpdate.setAge(21);
 
         UserDto userDtoForUpdate = new UserDto();
         userDtoForUpdate.setUserId(1L);
-        userDtoForUpdate.setFullName("name");
-        userDtoForUpdate.setTitle("title");
-        userDtoForUpdate.setAge(11);
+        userDtoForUpdate.setFullName("updated name");
+        userDtoForUpdate.setTitle("updated title");
+        userDtoForUpdate.setAge(21);
 
-        Person updatedUser = new Person();
-        updatedUser.setUserId(1L);
-        updatedUser.setFullName("updated name");
-        updatedUser.setTitle("updated title");
-        updatedUser.setAge(21);
+        Person userFromDB = new Person();
+        userFromDB.setUserId(1L);
+        userFromDB.setFullName("name");
+        userFromDB.setTitle("title");
+        userFromDB.setAge(11);
+        userFromDB.setVersion(3L);
 
         UserDto updatedUserDto = new UserDto();
         updatedUserDto.setUserId(1L);
@@ -111,10 +170,12 @@ public class UserServiceImplTest {
 
         // when
 
+        when(optimisticLockRetry.execute(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
         when(userMapper.userDtoToPerson(userDtoForUpdate)).thenReturn(userForUpdate);
-        when(userRepository.findByIdForUpdate(userForUpdate.getUserId()))
-                .thenReturn(Optional.ofNullable(updatedUser));
-        when(userMapper.personToUserDto(updatedUser)).thenReturn(updatedUserDto);
+        when(userRepository.findById(userForUpdate.getUserId())).thenReturn(Optional.of(userFromDB));
+        when(userRepository.save(userFromDB)).thenReturn(userFromDB);
+        when(userMapper.personToUserDto(userFromDB)).thenReturn(updatedUserDto);
 
         // then
 
@@ -122,7 +183,10 @@ public class UserServiceImplTest {
 
         assertNotNull(userDtoResult);
         assertEquals(updatedUserDto, userDtoResult);
-        verify(userRepository).save(userForUpdate);
+        assertEquals("updated name", userFromDB.getFullName());
+        assertEquals(3L, userFromDB.getVersion());
+        verify(userRepository).save(userFromDB);
+        verify(optimisticLockRetry).execute(eq("updateUser"), any());
     }
 
     @Test
@@ -181,6 +245,59 @@ public class UserServiceImplTest {
         verify(userRepository).findById(userWhoLookFor.getUserId());
     }
 
+    @Test
+    @DisplayName("Getting user with book ids in one query. Should be successful.")
+    void getUserWithBookIdsById_Test() {
+        // given
+
+        UserBookIdProjection firstRow = userBookIdRow(1L, 10L);
+        UserBookIdProjection secondRow = userBookIdRow(1L, 11L);
+
+        // when
+
+        when(userRepository.findUserWithBookIdsById(1L)).thenReturn(List.of(firstRow, secondRow));
+
+        // then
+
+        UserBookIdsDto result = userService.getUserWithBookIdsById(1L);
+        assertNotNull(result);
+        assertEquals(1L, result.getUser().getUserId());
+        assertEquals("test title", result.getUser().getTitle());
+        assertEquals(List.of(10L, 11L), result.getBookIds());
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Getting user without books in one query. Book ids should be empty.")
+    void getUserWithBookIdsById_withoutBooks_Test() {
+        // given
+
+        UserBookIdProjection row = userBookIdRow(1L, null);
+
+        // when
+
+        when(userRepository.findUserWithBookIdsById(1L)).thenReturn(List.of(row));
+
+        // then
+
+        UserBookIdsDto result = userService.getUserWithBookIdsById(1L);
+        assertEquals(List.of(), result.getBookIds());
+    }
+
+    @Test
+    @DisplayName("Getting user with book ids. Expect UserServiceException.class exception.")
+    void getUserWithBookIdsById_whenUserNotFound_Test() {
+        // when
+
+        when(userRepository.findUserWithBookIdsById(11L)).thenReturn(List.of());
+
+        // then
+
+        assertThatThrownBy(() -> userService.getUserWithBookIdsById(11L))
+                .isInstanceOf(UserServiceException.class)
+                .hasMessage("User not found");
+    }
+
     @Test
     @DisplayName("Deleting user. Should be successful.")
     void deleteUserById_success_Test() {
@@ -197,13 +314,12 @@ public class UserServiceImplTest {
 
         // when
 
-        when(userRepository.findById(userForDelete.getUserId()))
-                .thenReturn(Optional.ofNullable(userForDelete));
+        when(userRepository.deleteUserById(userForDelete.getUserId())).thenReturn(1);
 
         // then
 
-        userService.deleteUserById(userForDelete.getUserId());
-        verify(userRepository).deleteById(userForDelete.getUserId());
+        assertEquals(1, userService.deleteUserById(userForDelete.getUserId()));
+        verify(userRepository).deleteUserById(userForDelete.getUserId());
     }
 
     @Test
@@ -218,13 +334,60 @@ public class UserServiceImplTest {
 
         NotFoundException exception = new NotFoundException("Incorrect user id for deleting");
         doThrow(exception).when(userRepository)
-                .deleteById(userForDelete.getUserId());
+                .deleteUserById(userForDelete.getUserId());
 
         // then
 
         assertThatThrownBy(() -> userService.deleteUserById(userForDelete.getUserId()))
                 .isInstanceOf(NotFoundException.class)
                 .hasMessage("Incorrect user id for deleting");
-        verify(userRepository).deleteById(userForDelete.getUserId());
+        verify(userRepository).deleteUserById(userForDelete.getUserId());
+    }
+
+    @Test
+    @DisplayName("Passing all users with books. Rows should be grouped by user.")
+    void forEachUserWithBooks_Test() {
+        // given
+
+        UserBookProjection firstRow = userBookRow(1L, 10L);
+        UserBookProjection secondRow = userBookRow(1L, 11L);
+        UserBookProjection thirdRow = userBookRow(2L, null);
+        List<UserWithBooksDto> result = new ArrayList<>();
+
+        // when
+
+        when(userRepository.streamAllUsersWithBooks()).thenReturn(Stream.of(firstRow, secondRow, thirdRow));
+
+        // then
+
+        userService.forEachUserWithBooks(result::add);
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getUser().getUserId());
+        assertEquals(List.of(10L, 11L), result.get(0).getBooks().stream().map(BookDto::getId).toList());
+        assertEquals(2L, result.get(1).getUser().getUserId());
+        assertEquals(List.of(), result.get(1).getBooks());
+    }
+
+    private UserBookIdProjection userBookIdRow(Long userId, Long bookId) {
+        UserBookIdProjection row = mock(UserBookIdProjection.class);
+        when(row.getUserId()).thenReturn(userId);
+        when(row.getFullName()).thenReturn("test name");
+        when(row.getTitle()).thenReturn("test title");
+        when(row.getAge()).thenReturn(21);
+        when(row.getBookId()).thenReturn(bookId);
+        return row;
+    }
+
+    private UserBookProjection userBookRow(Long userId, Long bookId) {
+        UserBookProjection row = mock(UserBookProjection.class);
+        when(row.getUserId()).thenReturn(userId);
+        when(row.getFullName()).thenReturn("test name");
+        when(row.getTitle()).thenReturn("test title");
+        when(row.getAge()).thenReturn(21);
+        when(row.getBookId()).thenReturn(bookId);
+        when(row.getBookTitle()).thenReturn(bookId == null ? null : "book title");
+        when(row.getBookAuthor()).thenReturn(bookId == null ? null : "book author");
+        when(row.getBookPageCount()).thenReturn(bookId == null ? null : 100L);
+        return row;
     }
 }
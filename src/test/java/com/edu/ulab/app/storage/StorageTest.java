@@ -0,0 +1,119 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование хранилища {@link Storage}.
+ */
+@DisplayName("Testing in-memory storage.")
+public class StorageTest {
+
+    Storage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new Storage();
+    }
+
+    @Test
+    @DisplayName("Saving user. Id should be generated.")
+    void savePerson_generatesId_Test() {
+        // given
+        Person first = new Person();
+        Person second = new Person();
+
+        // when
+        storage.savePerson(first);
+        storage.savePerson(second);
+
+        // then
+        assertThat(first.getUserId()).isNotNull();
+        assertThat(second.getUserId()).isGreaterThan(first.getUserId());
+        assertThat(storage.findPersonById(first.getUserId())).contains(first);
+    }
+
+    @Test
+    @DisplayName("Getting books by user's id. Only user's books should be returned.")
+    void findBooksByUserId_Test() {
+        // given
+        Book firstBook = book(1L);
+        Book secondBook = book(1L);
+        Book otherUserBook = book(2L);
+        storage.saveBook(firstBook);
+        storage.saveBook(otherUserBook);
+        storage.saveBook(secondBook);
+
+        // when
+        List<Book> result = storage.findBooksByUserId(1L);
+
+        // then
+        assertThat(result).containsExactly(firstBook, secondBook);
+    }
+
+    @Test
+    @DisplayName("Moving book to another user. Index should be updated.")
+    void saveBook_changeUser_Test() {
+        // given
+        Book book = book(1L);
+        storage.saveBook(book);
+
+        Book movedBook = book(2L);
+        movedBook.setId(book.getId());
+
+        // when
+        storage.saveBook(movedBook);
+
+        // then
+        assertThat(storage.findBooksByUserId(1L)).isEmpty();
+        assertThat(storage.findBooksByUserId(2L)).containsExactly(movedBook);
+    }
+
+    @Test
+    @DisplayName("Deleting book. Index should be updated.")
+    void deleteBookById_Test() {
+        // given
+        Book book = book(1L);
+        storage.saveBook(book);
+
+        // when
+        boolean deleted = storage.deleteBookById(book.getId());
+
+        // then
+        assertThat(deleted).isTrue();
+        assertThat(storage.findBookById(book.getId())).isEmpty();
+        assertThat(storage.findBooksByUserId(1L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Changing saved and found entities. Storage should keep its own copies.")
+    void findBookById_returnsCopy_Test() {
+        // given
+        Book book = book(1L);
+        storage.saveBook(book);
+
+        // when
+        book.setTitle("Changed after save");
+        storage.findBookById(book.getId()).orElseThrow().setTitle("Changed after find");
+
+        // then
+        assertThat(storage.findBookById(book.getId()))
+                .hasValueSatisfying(found -> assertThat(found.getTitle()).isEqualTo("Title"));
+    }
+
+    private Book book(Long userId) {
+        Book book = new Book();
+        book.setUserId(userId);
+        book.setTitle("Title");
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}